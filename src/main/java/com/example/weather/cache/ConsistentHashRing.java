@@ -0,0 +1,72 @@
+package com.example.weather.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps cache keys to the member that owns them. Each member is placed on a 64-bit ring at {@code virtualNodes}
+ * points and a key belongs to the first point at or after its own hash, so ownership is spread evenly and adding or
+ * removing a member moves only that member's share of the keys. Immutable; every replica builds the same ring from
+ * the same member list.
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(List<String> members, int virtualNodes) {
+        if (members.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A hash ring needs members and virtual nodes: " + members + ", " + virtualNodes);
+        }
+        int size = members.size() * virtualNodes;
+        long[][] placed = new long[size][2];
+        int i = 0;
+        for (int member = 0; member < members.size(); member++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                placed[i][0] = hash(members.get(member) + "#" + node);
+                placed[i][1] = member;
+                i++;
+            }
+        }
+        // ties, however unlikely, are broken by member order so every replica still agrees
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (i = 0; i < size; i++) {
+            points[i] = placed[i][0];
+            owners[i] = members.get((int) placed[i][1]);
+        }
+    }
+
+    public String owner(String key) {
+        long hash = hash(key);
+        // first point >= hash in unsigned order, wrapping around to the start
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the murmur3 finalizer so similar keys land far apart
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
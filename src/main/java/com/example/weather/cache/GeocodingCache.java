@@ -0,0 +1,137 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.GeocodingCacheProperties;
+import com.example.weather.model.request.Coordinates;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived zip → coordinates cache. Postal codes practically never move, so entries outlive the
+ * weather cache by days and are persisted to disk so a restart doesn't re-geocode the working set.
+ */
+@Slf4j
+@Component
+public class GeocodingCache {
+
+    private final Cache<String, Coordinates> cache;
+    private final Duration ttl;
+    private final int maximumSize;
+    private final GeocodingDiskStore diskStore;
+
+    @Autowired
+    public GeocodingCache(@Qualifier("geocodingCaffeineCache") Cache<String, Coordinates> cache,
+                          GeocodingCacheProperties properties) {
+        this.cache = cache;
+        this.ttl = Duration.ofDays(properties.getExpireAfterWriteDays());
+        this.maximumSize = properties.getMaximumSize();
+        String storePath = properties.getStorePath();
+        this.diskStore = storePath == null || storePath.isBlank() ? null : new GeocodingDiskStore(Path.of(storePath));
+    }
+
+    // Zip codes are matched case- and whitespace-insensitively, e.g. "sw1a 1aa" and "SW1A1AA"
+    public static String normalizeKey(String zipCode, String countryCode) {
+        String zip = zipCode.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        String country = countryCode == null ? "" : countryCode.trim().toLowerCase(Locale.ROOT);
+        return country + ":" + zip;
+    }
+
+    public Coordinates get(String zipCode, String countryCode) {
+        return cache.getIfPresent(normalizeKey(zipCode, countryCode));
+    }
+
+    public void put(String zipCode, String countryCode, Coordinates coordinates) {
+        String key = normalizeKey(zipCode, countryCode);
+        cache.put(key, coordinates);
+        if (diskStore == null) {
+            return;
+        }
+        try {
+            diskStore.append(new GeocodingDiskStore.Entry(key, coordinates.getLatitude(), coordinates.getLongitude(), System.currentTimeMillis()));
+            if (diskStore.recordCount() > 2L * Math.max(maximumSize, cache.estimatedSize())) {
+                compact();
+            }
+        } catch (IOException e) {
+            // the in-memory entry is still good; only restart persistence is lost
+            log.warn("Failed to persist geocoding entry for key: {}", key, e);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @PostConstruct
+    public void loadFromDisk() {
+        if (diskStore == null) {
+            return;
+        }
+        try {
+            List<GeocodingDiskStore.Entry> records = diskStore.readAll();
+            Map<String, GeocodingDiskStore.Entry> latest = new HashMap<>();
+            for (GeocodingDiskStore.Entry record : records) {
+                latest.merge(record.key(), record, (a, b) -> b.writtenAtMillis() >= a.writtenAtMillis() ? b : a);
+            }
+
+            long now = System.currentTimeMillis();
+            Policy.VarExpiration<String, Coordinates> expiration = varExpiration();
+            List<GeocodingDiskStore.Entry> live = new ArrayList<>();
+            for (GeocodingDiskStore.Entry entry : latest.values()) {
+                long remaining = entry.writtenAtMillis() + ttl.toMillis() - now;
+                if (remaining > 0) {
+                    expiration.put(entry.key(), new Coordinates(entry.latitude(), entry.longitude()), remaining, TimeUnit.MILLISECONDS);
+                    live.add(entry);
+                }
+            }
+            if (live.size() < records.size()) {
+                diskStore.rewrite(live);
+            }
+            log.info("Loaded {} geocoding entries from disk ({} records read)", live.size(), records.size());
+        } catch (IOException e) {
+            log.warn("Could not load geocoding cache from disk, starting empty", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (diskStore != null) {
+            diskStore.close();
+        }
+    }
+
+    // Rewrites the file from what is still in memory, recovering each entry's write time from its remaining TTL
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        Policy.VarExpiration<String, Coordinates> expiration = varExpiration();
+        List<GeocodingDiskStore.Entry> live = new ArrayList<>();
+        cache.asMap().forEach((key, coordinates) -> expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS).ifPresent(remaining ->
+                live.add(new GeocodingDiskStore.Entry(key, coordinates.getLatitude(), coordinates.getLongitude(),
+                        now + remaining - ttl.toMillis()))));
+        diskStore.rewrite(live);
+    }
+
+    private Policy.VarExpiration<String, Coordinates> varExpiration() {
+        return cache.policy().expireVariably()
+                .orElseThrow(() -> new IllegalStateException("geocodingCaffeineCache must use variable expiry"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.weather.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of zip → lat/lon records.
+ * <p>
+ * Record layout: key length (short), key (UTF-8), lat (double), lon (double), write time (epoch millis), CRC32 (int).
+ * A torn or corrupt record ends the read, so a crash mid-append only loses that record.
+ */
+@Slf4j
+public class GeocodingDiskStore implements Closeable {
+
+    public record Entry(String key, double latitude, double longitude, long writtenAtMillis) {
+    }
+
+    private static final int FIXED_RECORD_BYTES = Short.BYTES + 3 * Long.BYTES + Integer.BYTES;
+    private static final int MAX_KEY_BYTES = 256;
+
+    private final Path path;
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private int recordCount;
+
+    public GeocodingDiskStore(Path path) {
+        this.path = path;
+    }
+
+    // Reads every intact record in file order and truncates anything after the last one
+    public List<Entry> readAll() throws IOException {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            if (!Files.exists(path)) {
+                return entries;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            int validEnd = 0;
+            while (buffer.remaining() >= FIXED_RECORD_BYTES) {
+                int start = buffer.position();
+                int keyLength = buffer.getShort();
+                if (keyLength <= 0 || keyLength > MAX_KEY_BYTES || buffer.remaining() < keyLength + FIXED_RECORD_BYTES - Short.BYTES) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                buffer.get(key);
+                double latitude = buffer.getDouble();
+                double longitude = buffer.getDouble();
+                long writtenAt = buffer.getLong();
+                int checksum = buffer.getInt();
+                if (checksum != checksum(buffer.array(), start, buffer.position() - Integer.BYTES - start)) {
+                    break;
+                }
+                entries.add(new Entry(new String(key, StandardCharsets.UTF_8), latitude, longitude, writtenAt));
+                validEnd = buffer.position();
+            }
+            if (validEnd < buffer.capacity()) {
+                log.warn("Discarding {} trailing bytes of incomplete geocoding records in {}", buffer.capacity() - validEnd, path);
+                try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    truncate.truncate(validEnd);
+                }
+            }
+            recordCount = entries.size();
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(Entry entry) throws IOException {
+        ByteBuffer record = encode(entry);
+        lock.lock();
+        try {
+            if (channel == null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            recordCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces the file with exactly these entries; the swap is atomic so readers never see a half-written file
+    public void rewrite(Collection<Entry> entries) throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Entry entry : entries) {
+                    ByteBuffer record = encode(entry);
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordCount = entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int recordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeChannel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Geocoding key length out of range: " + entry.key());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(key.length + FIXED_RECORD_BYTES);
+        buffer.putShort((short) key.length)
+                .put(key)
+                .putDouble(entry.latitude())
+                .putDouble(entry.longitude())
+                .putLong(entry.writtenAtMillis());
+        buffer.putInt(checksum(buffer.array(), 0, buffer.position()));
+        return buffer.flip();
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
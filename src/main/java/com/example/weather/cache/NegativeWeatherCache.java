@@ -0,0 +1,75 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.NegativeCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weather cache keys known to have no answer right now: zip codes Nominatim can't place, and lookups that just failed
+ * upstream. Misses for them are answered from here instead of spending upstream calls and rate-limit budget.
+ * <p>
+ * Kept apart from the weather cache, with its own size bound and short TTLs, so a client spraying made-up zip codes
+ * only evicts other made-up zip codes.
+ */
+@Component
+public class NegativeWeatherCache {
+
+    public enum Reason { NOT_FOUND, UPSTREAM_FAILED }
+
+    private final Cache<String, Reason> cache;
+    private final boolean enabled;
+
+    @Autowired
+    public NegativeWeatherCache(@Qualifier("negativeWeatherCaffeineCache") Cache<String, Reason> cache,
+                                NegativeCacheProperties properties) {
+        this.cache = cache;
+        this.enabled = properties.isEnabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Why the key has no answer, or null when nothing is known against it
+    public Reason get(String key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    public void notFound(String key) {
+        if (enabled) {
+            cache.put(key, Reason.NOT_FOUND);
+        }
+    }
+
+    // A not-found answer is the better information, so a failure never replaces one
+    public void failed(String key) {
+        if (enabled) {
+            cache.asMap().putIfAbsent(key, Reason.UPSTREAM_FAILED);
+        }
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    // Whole seconds until the key may be tried again, at least 1
+    public long retryAfterSeconds(String key) {
+        long remainingMillis = cache.policy().expireVariably()
+                .map(expiration -> expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS).orElse(0L))
+                .orElse(0L);
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.ApiPaths;
+import com.example.weather.config.PeerCacheProperties;
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groupcache-style sharing of the weather cache between replicas. Every replica builds the same
+ * {@link ConsistentHashRing} from the configured members, and each key has exactly one owner. A replica that misses a
+ * key it doesn't own asks the owner, which serves it from its cache or loads it, so only the owner goes upstream.
+ * The answer is kept locally for a short hot TTL, so a key that is hot everywhere costs the owner one request per
+ * replica per hot TTL rather than one per request.
+ * <p>
+ * Entries cross the wire in the disk tier's record format. An owner that is down or slow is skipped and the key is
+ * loaded upstream locally, so a lost replica costs upstream calls, not availability.
+ */
+@Slf4j
+@Component
+public class PeerWeatherCache {
+
+    public static final String PATH = ApiPaths.V1_VERSION + "/peer/weather";
+    public static final String SECRET_HEADER = "X-Peer-Secret";
+    private static final String RECORD_TYPE = "application/octet-stream";
+
+    private final PeerCacheProperties properties;
+    private final WeatherMetrics metrics;
+    private final ConsistentHashRing ring;
+    private final HttpClient httpClient;
+    private final byte[] secret;
+    private final long weatherTtlMillis;
+    private final String self;
+
+    public PeerWeatherCache(PeerCacheProperties properties, WeatherCacheProperties weatherCacheProperties, WeatherMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.weatherTtlMillis = TimeUnit.MINUTES.toMillis(weatherCacheProperties.getExpireAfterWriteMinutes());
+        this.secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        this.self = properties.getSelf().trim();
+        if (!properties.isEnabled()) {
+            this.ring = null;
+            this.httpClient = null;
+            return;
+        }
+        List<String> members = properties.getMembers().stream().map(String::trim).sorted().toList();
+        if (!members.contains(self)) {
+            throw new IllegalStateException("cache.peers.self (" + self + ") must be one of cache.peers.members " + members);
+        }
+        if (properties.getSecret().isBlank()) {
+            throw new IllegalStateException("cache.peers.secret must be set when cache.peers.enabled=true");
+        }
+        this.ring = new ConsistentHashRing(members, properties.getVirtualNodes());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(properties.getTimeoutMillis()))
+                .build();
+        if (weatherCacheProperties.getRefreshAfterWriteMinutes() > 0
+                && properties.getHotTtlSeconds() >= TimeUnit.MINUTES.toSeconds(weatherCacheProperties.getRefreshAfterWriteMinutes())) {
+            // a local copy that lives past refresh-after-write would be refreshed from upstream here, not from its owner
+            log.warn("cache.peers.hot-ttl-seconds ({}) is not below cache.weather.refresh-after-write-minutes; replicas will refresh keys they don't own",
+                    properties.getHotTtlSeconds());
+        }
+        log.info("Sharing the weather cache with {} replicas as {}", members.size(), self);
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    // The replica that owns the key, or null when it is this one or sharing is off
+    public String remoteOwner(String key) {
+        if (ring == null) {
+            return null;
+        }
+        String owner = ring.owner(key);
+        return owner.equals(self) ? null : owner;
+    }
+
+    /**
+     * Asks the owner for a key. Returns null when the owner has no weather for it either; an owner that is itself out
+     * of upstream capacity fails the call with its 503. Any other failure is an {@link IllegalStateException}, and the
+     * caller loads the key itself.
+     */
+    public WeatherResponse fetch(String owner, String key, String zipCode, String countryCode) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(owner + PATH)
+                .queryParam("zipCode", zipCode)
+                .queryParamIfPresent("countrycodes", Optional.ofNullable(countryCode))
+                .encode()
+                .build()
+                .toUri();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header(SECRET_HEADER, properties.getSecret())
+                .header("Accept", RECORD_TYPE)
+                .timeout(Duration.ofMillis(properties.getTimeoutMillis()))
+                .GET()
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            metrics.peerFetch("error");
+            throw new IllegalStateException("Peer " + owner + " unreachable for " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.peerFetch("error");
+            throw new IllegalStateException("Interrupted asking peer " + owner + " for " + key, e);
+        }
+
+        switch (response.statusCode()) {
+            case 200 -> {
+                WeatherResponse weather = WeatherDiskStore.fromBytes(response.body()).response();
+                metrics.peerFetch("hit");
+                return weather;
+            }
+            case 404 -> {
+                metrics.peerFetch("not_found");
+                return null;
+            }
+            case 429, 503 -> {
+                metrics.peerFetch("busy");
+                throw new RateLimitExceededException(503, "The weather service is busy. Please try again later.",
+                        response.headers().firstValue("Retry-After").orElse("1"));
+            }
+            default -> {
+                metrics.peerFetch("error");
+                throw new IllegalStateException("Peer " + owner + " answered " + response.statusCode() + " for " + key);
+            }
+        }
+    }
+
+    /**
+     * Caps the local entry for a key another replica owns at the hot TTL, or at what is left of the forecast's
+     * freshness if that is shorter, so replicas go back to the owner rather than keep their own copy for long.
+     */
+    public void alignExpiry(AsyncCache<String, WeatherResponse> memoryCache, String key, WeatherResponse response) {
+        if (response == null || remoteOwner(key) == null) {
+            return;
+        }
+        long hotTtl = TimeUnit.SECONDS.toMillis(properties.getHotTtlSeconds());
+        long fresh = response.getFetchedAtMillis() > 0
+                ? response.getFetchedAtMillis() + weatherTtlMillis - System.currentTimeMillis()
+                : hotTtl;
+        long expiresAfter = Math.max(1, Math.min(hotTtl, fresh));
+        memoryCache.synchronous().policy().expireVariably()
+                .ifPresent(expiration -> expiration.setExpiresAfter(key, expiresAfter, TimeUnit.MILLISECONDS));
+    }
+
+    // Constant-time, so the secret can't be guessed byte by byte from response times
+    public boolean isTrustedPeer(String presentedSecret) {
+        return isEnabled() && presentedSecret != null
+                && MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] toRecord(String key, WeatherResponse response) {
+        long fetchedAt = response.getFetchedAtMillis() > 0 ? response.getFetchedAtMillis() : System.currentTimeMillis();
+        return WeatherDiskStore.toBytes(new WeatherDiskStore.Entry(key, response, fetchedAt));
+    }
+}
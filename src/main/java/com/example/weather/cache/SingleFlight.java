@@ -0,0 +1,72 @@
+package com.example.weather.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Per-key single-flight loads on top of a Caffeine {@link AsyncCache}.
+ * <p>
+ * The first caller for a missing key installs a pending future and runs the loader on its own thread;
+ * concurrent callers for that key get the same future back and wait on it. A loader failure reaches every
+ * waiter as the same exception, and Caffeine drops failed or null futures so they are never cached.
+ */
+public final class SingleFlight {
+
+    public enum Outcome {
+        HIT,     // value was already cached
+        JOINED,  // another caller was loading it; we waited for their result
+        LOADED   // this caller ran the loader
+    }
+
+    public record Result<V>(V value, Outcome outcome) {
+    }
+
+    /**
+     * Either the future already cached for a key, or a fresh pending future the caller now owns and must complete.
+     */
+    public record Claim<V>(CompletableFuture<V> future, boolean owner) {
+    }
+
+    private SingleFlight() {
+    }
+
+    public static <K, V> Result<V> getOrLoad(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        Claim<V> claim = claim(cache, key);
+        if (!claim.owner()) {
+            Outcome outcome = claim.future().isDone() ? Outcome.HIT : Outcome.JOINED;
+            return new Result<>(await(claim.future()), outcome);
+        }
+
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            claim.future().completeExceptionally(e);
+            throw e;
+        }
+        claim.future().complete(value);
+        return new Result<>(value, Outcome.LOADED);
+    }
+
+    // For callers that load many keys together: an owned claim must always be completed, or its waiters hang
+    public static <K, V> Claim<V> claim(AsyncCache<K, V> cache, K key) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> entry = cache.get(key, (k, executor) -> pending);
+        return new Claim<>(entry, entry == pending);
+    }
+
+    // Waiters see the owner's exception as-is rather than wrapped in a CompletionException
+    public static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
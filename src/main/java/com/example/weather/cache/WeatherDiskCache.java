@@ -0,0 +1,122 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk tier behind the in-memory weather cache. Every forecast fetched upstream is written through to a
+ * {@link WeatherDiskStore}, so after a restart or an L1 eviction a still-fresh entry costs a local read instead of
+ * a Nominatim and an Open-Meteo call. Entries keep their original write time and expire on the same schedule as in memory.
+ */
+@Slf4j
+@Component
+public class WeatherDiskCache {
+
+    private final WeatherDiskStore diskStore;
+    private final ExecutorService compactor;
+    private final Duration ttl;
+    // false until the store is mapped, and stays false if that fails
+    private volatile boolean available;
+
+    @Autowired
+    public WeatherDiskCache(WeatherCacheProperties properties) {
+        this.ttl = Duration.ofMinutes(properties.getExpireAfterWriteMinutes());
+        String storePath = properties.getStorePath();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("weather-disk-compactor-");
+        threadFactory.setDaemon(true);
+        // compactions are one at a time, so one thread is enough and keeps them off request threads
+        this.compactor = Executors.newSingleThreadExecutor(threadFactory);
+        this.diskStore = storePath == null || storePath.isBlank() ? null
+                : new WeatherDiskStore(Path.of(storePath), Math.toIntExact(properties.getStoreMaxMegabytes() * 1024L * 1024L), ttl, compactor);
+    }
+
+    public boolean isEnabled() {
+        return available;
+    }
+
+    // Marked fromCache, since it is served without going upstream; the record's write time is its fetch time
+    public WeatherResponse get(String key) {
+        if (!available) {
+            return null;
+        }
+        WeatherDiskStore.Entry entry = diskStore.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.response().withFromCache(true);
+    }
+
+    public void put(String key, WeatherResponse response) {
+        if (!available) {
+            return;
+        }
+        // stamped with the fetch time, so a forecast shared from the grid cache expires on disk when it goes stale
+        long writtenAt = response.getFetchedAtMillis() > 0 ? response.getFetchedAtMillis() : System.currentTimeMillis();
+        try {
+            if (!diskStore.put(new WeatherDiskStore.Entry(key, response, writtenAt))) {
+                log.debug("Weather disk store full while compacting, not persisting key: {}", key);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the in-memory entry is still good; only the disk copy is lost
+            log.warn("Failed to persist weather entry for key: {}", key, e);
+        }
+    }
+
+    /**
+     * Caps the in-memory entry for a key at the lifetime its disk record has left, so a value restored from disk
+     * isn't kept a full expire-after-write longer than it would have been without the restart.
+     */
+    public void alignExpiry(AsyncCache<String, WeatherResponse> memoryCache, String key) {
+        if (!available) {
+            return;
+        }
+        WeatherDiskStore.Entry entry = diskStore.get(key);
+        if (entry == null) {
+            return;
+        }
+        long remaining = Math.max(1, entry.writtenAtMillis() + ttl.toMillis() - System.currentTimeMillis());
+        memoryCache.synchronous().policy().expireVariably()
+                .ifPresent(expiration -> expiration.setExpiresAfter(key, remaining, TimeUnit.MILLISECONDS));
+    }
+
+    public int size() {
+        return available ? diskStore.size() : 0;
+    }
+
+    @PostConstruct
+    public void open() {
+        if (diskStore == null) {
+            return;
+        }
+        try {
+            diskStore.open();
+            available = true;
+            log.info("Opened weather disk cache with {} live entries", diskStore.size());
+        } catch (IOException e) {
+            log.warn("Could not open weather disk cache, continuing with the in-memory cache only", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        available = false;
+        compactor.shutdownNow();
+        if (diskStore != null) {
+            diskStore.close();
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped, append-only file of cache key → {@link WeatherResponse} records, fixed at {@code capacityBytes} on disk.
+ * <p>
+ * The file starts with a magic number and format version; a file with any other header is discarded on open.
+ * Record layout: body length (int), CRC32 of the body (int), then the body: write time (epoch millis), key length (short),
+ * key (UTF-8), current/max/min temperature (double), forecast kind (byte), then for a daily series its first epoch day (long),
+ * day count (short) and the max and min floats, or for free text its length (int) and UTF-8 bytes.
+ * The length is written last and the unused part of the file is zero-filled, so a zero length marks the end of the log.
+ * A torn or corrupt record ends the scan on open and everything after it is zeroed, so a crash mid-write only loses that record.
+ * <p>
+ * Once the log passes three quarters of the capacity, it is compacted on the compactor: the newest unexpired record per
+ * key, up to half the capacity, is copied to a fresh file without holding the lock, then records appended meanwhile are
+ * carried over and the new file is swapped in under the lock. A write that finds the file full before that finishes is
+ * skipped, since the in-memory tier still has the entry.
+ */
+@Slf4j
+public class WeatherDiskStore implements Closeable {
+
+    public record Entry(String key, WeatherResponse response, long writtenAtMillis) {
+    }
+
+    private record Slot(int offset, long writtenAtMillis) {
+    }
+
+    private record Record(String key, long writtenAtMillis, byte[] bytes) {
+    }
+
+    private static final int MAGIC = 0x57584453; // "WXDS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MIN_BODY_BYTES = Long.BYTES + Short.BYTES + 3 * Double.BYTES + 1;
+    private static final byte NO_FORECAST = 0;
+    private static final byte TEXT_FORECAST = 1;
+    private static final byte DAILY_FORECAST = 2;
+    private static final int MAX_KEY_BYTES = 256;
+
+    private final Path path;
+    private final int capacityBytes;
+    private final int compactAtBytes;
+    private final long ttlMillis;
+    private final Executor compactor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Slot> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private boolean compacting;
+
+    public WeatherDiskStore(Path path, int capacityBytes, Duration ttl, Executor compactor) {
+        this.path = path;
+        this.capacityBytes = capacityBytes;
+        this.compactAtBytes = capacityBytes / 4 * 3;
+        this.ttlMillis = ttl.toMillis();
+        this.compactor = compactor;
+    }
+
+    // Maps the file and indexes every intact record; a file left at another size by an older configuration is rewritten to fit
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existing = channel.size();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(existing, capacityBytes));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+                if (existing > 0) {
+                    discardFrom(0, buffer.capacity());
+                }
+                buffer.putInt(0, MAGIC).putInt(Integer.BYTES, FORMAT_VERSION);
+            }
+            scan();
+            if (existing > capacityBytes) {
+                // nothing else can use the store yet, so this one is compacted in place of the first write
+                compacting = true;
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The newest record for the key, or null if there is none or it has expired
+    public Entry get(String key) {
+        lock.lock();
+        try {
+            Slot slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (isExpired(slot, System.currentTimeMillis())) {
+                index.remove(key);
+                return null;
+            }
+            return decode(slot.offset());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // False when the file was full and the write was skipped while a compaction makes room
+    public boolean put(Entry entry) throws IOException {
+        byte[] body = encode(entry);
+        int recordBytes = HEADER_BYTES + body.length;
+        if (recordBytes > capacityBytes / 4) {
+            throw new IllegalArgumentException("Weather record of " + recordBytes + " bytes is too large for a " + capacityBytes + " byte store");
+        }
+        boolean written;
+        boolean startCompaction;
+        lock.lock();
+        try {
+            if (buffer == null) {
+                throw new IOException("Weather disk store is not open: " + path);
+            }
+            written = writePosition + recordBytes <= capacityBytes;
+            if (written) {
+                int offset = writePosition;
+                buffer.put(offset + HEADER_BYTES, body);
+                buffer.putInt(offset + Integer.BYTES, checksum(body, 0, body.length));
+                // a non-zero length is what makes the record visible to the next scan, so it goes in last
+                buffer.putInt(offset, body.length);
+                index.put(entry.key(), new Slot(offset, entry.writtenAtMillis()));
+                writePosition += recordBytes;
+            }
+            startCompaction = !compacting && writePosition + (written ? 0 : recordBytes) > compactAtBytes;
+            compacting |= startCompaction;
+        } finally {
+            lock.unlock();
+        }
+        if (startCompaction) {
+            try {
+                compactor.execute(this::compact);
+            } catch (RejectedExecutionException e) {
+                // shutting down; the next open compacts whatever is left
+                finishCompaction();
+            }
+        }
+        return written;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            index.clear();
+            writePosition = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scan() {
+        index.clear();
+        int limit = buffer.capacity();
+        int position = FILE_HEADER_BYTES;
+        while (position + HEADER_BYTES <= limit) {
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength == 0) {
+                break;
+            }
+            if (bodyLength < MIN_BODY_BYTES || bodyLength > limit - position - HEADER_BYTES) {
+                discardFrom(position, limit);
+                break;
+            }
+            byte[] body = new byte[bodyLength];
+            buffer.get(position + HEADER_BYTES, body);
+            if (buffer.getInt(position + Integer.BYTES) != checksum(body, 0, bodyLength)) {
+                discardFrom(position, limit);
+                break;
+            }
+            ByteBuffer fields = ByteBuffer.wrap(body);
+            long writtenAt = fields.getLong();
+            byte[] key = new byte[fields.getShort()];
+            fields.get(key);
+            index.put(new String(key, StandardCharsets.UTF_8), new Slot(position, writtenAt));
+            position += HEADER_BYTES + bodyLength;
+        }
+        writePosition = position;
+    }
+
+    private void discardFrom(int position, int limit) {
+        log.warn("Discarding {} bytes after the last intact weather record in {}", limit - position, path);
+        byte[] zeros = new byte[8192];
+        for (int offset = position; offset < limit; offset += zeros.length) {
+            buffer.put(offset, zeros, 0, Math.min(zeros.length, limit - offset));
+        }
+    }
+
+    /**
+     * Copies the newest live records into a fresh file outside the lock, then, under the lock, appends whatever was
+     * written since and swaps the file in. Writing to a new file and moving it into place means a crash leaves either
+     * the old file or the new one.
+     */
+    private void compact() {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            MappedByteBuffer source;
+            int copiedUpTo;
+            List<Map.Entry<String, Slot>> live = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            lock.lock();
+            try {
+                if (buffer == null) {
+                    return;
+                }
+                source = buffer;
+                copiedUpTo = writePosition;
+                for (Map.Entry<String, Slot> slot : index.entrySet()) {
+                    if (!isExpired(slot.getValue(), now)) {
+                        live.add(Map.entry(slot.getKey(), slot.getValue()));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // records below copiedUpTo are never written again, so they can be read while appends continue
+            live.sort(Comparator.comparingLong((Map.Entry<String, Slot> slot) -> slot.getValue().writtenAtMillis()).reversed());
+            List<Record> kept = new ArrayList<>();
+            int used = 0;
+            for (Map.Entry<String, Slot> slot : live) {
+                Record record = read(source, slot.getValue().offset());
+                if (used + record.bytes().length > capacityBytes / 2) {
+                    break;
+                }
+                kept.add(record);
+                used += record.bytes().length;
+            }
+            log.info("Compacting weather disk store {}: keeping {} of {} live entries", path, kept.size(), live.size());
+
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Map<String, Slot> compacted = new HashMap<>();
+                int position = write(out, ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).array(), 0);
+                for (Record record : kept) {
+                    compacted.put(record.key(), new Slot(position, record.writtenAtMillis()));
+                    position = write(out, record.bytes(), position);
+                }
+                // zero-filled to the full size without writing the zeros
+                out.write(ByteBuffer.allocate(1), capacityBytes - 1);
+                out.force(false);
+
+                lock.lock();
+                try {
+                    if (buffer != source) {
+                        // closed while compacting
+                        return;
+                    }
+                    int offset = copiedUpTo;
+                    while (offset < writePosition) {
+                        Record record = read(source, offset);
+                        if (position + record.bytes().length > capacityBytes) {
+                            log.warn("Weather disk store {} filled up while compacting, dropping the newest writes", path);
+                            break;
+                        }
+                        compacted.put(record.key(), new Slot(position, record.writtenAtMillis()));
+                        position = write(out, record.bytes(), position);
+                        offset += record.bytes().length;
+                    }
+                    out.force(false);
+                    swap(tmp, compacted, position);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to compact weather disk store {}", path, e);
+        } finally {
+            finishCompaction();
+        }
+    }
+
+    // Guarded by the lock. The old mapping is dropped before the move and unmapped once collected; until then it only
+    // pins the replaced file's blocks
+    private void swap(Path tmp, Map<String, Slot> compacted, int position) throws IOException {
+        buffer = null;
+        channel.close();
+        channel = null;
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        index.clear();
+        index.putAll(compacted);
+        writePosition = position;
+    }
+
+    private void finishCompaction() {
+        lock.lock();
+        try {
+            compacting = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Record read(ByteBuffer source, int offset) {
+        byte[] bytes = new byte[HEADER_BYTES + source.getInt(offset)];
+        source.get(offset, bytes);
+        ByteBuffer body = ByteBuffer.wrap(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+        long writtenAt = body.getLong();
+        byte[] key = new byte[body.getShort()];
+        body.get(key);
+        return new Record(new String(key, StandardCharsets.UTF_8), writtenAt, bytes);
+    }
+
+    private static int write(FileChannel out, byte[] bytes, int position) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(bytes);
+        int offset = position;
+        while (source.hasRemaining()) {
+            offset += out.write(source, offset);
+        }
+        return offset;
+    }
+
+    private boolean isExpired(Slot slot, long now) {
+        return slot.writtenAtMillis() + ttlMillis <= now;
+    }
+
+    /**
+     * One entry as a record body, without the store's length and checksum header. Replicas exchange entries in this
+     * form too, so a forecast crosses the wire as its compact float series rather than as JSON.
+     */
+    public static byte[] toBytes(Entry entry) {
+        return encode(entry);
+    }
+
+    public static Entry fromBytes(byte[] body) {
+        if (body.length < MIN_BODY_BYTES) {
+            throw new IllegalArgumentException("Weather record too short: " + body.length + " bytes");
+        }
+        return decode(body);
+    }
+
+    private Entry decode(int offset) {
+        byte[] body = new byte[buffer.getInt(offset)];
+        buffer.get(offset + HEADER_BYTES, body);
+        return decode(body);
+    }
+
+    private static Entry decode(byte[] body) {
+        ByteBuffer fields = ByteBuffer.wrap(body);
+        long writtenAt = fields.getLong();
+        byte[] key = new byte[fields.getShort()];
+        fields.get(key);
+        double currentTemp = fields.getDouble();
+        double maxTemp = fields.getDouble();
+        double minTemp = fields.getDouble();
+        WeatherResponse response = switch (fields.get()) {
+            case DAILY_FORECAST -> {
+                long firstEpochDay = fields.getLong();
+                float[] maxTemps = new float[fields.getShort()];
+                float[] minTemps = new float[maxTemps.length];
+                fields.asFloatBuffer().get(maxTemps).get(minTemps);
+                yield new WeatherResponse(currentTemp, maxTemp, minTemp, new DailyForecast(firstEpochDay, maxTemps, minTemps), false);
+            }
+            case TEXT_FORECAST -> {
+                byte[] text = new byte[fields.getInt()];
+                fields.get(text);
+                yield new WeatherResponse(currentTemp, maxTemp, minTemp, new String(text, StandardCharsets.UTF_8), false);
+            }
+            default -> new WeatherResponse(currentTemp, maxTemp, minTemp, (String) null, false);
+        };
+        // the write time is when the forecast was fetched
+        return new Entry(new String(key, StandardCharsets.UTF_8), response.withFetchedAtMillis(writtenAt), writtenAt);
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Weather key length out of range: " + entry.key());
+        }
+        WeatherResponse response = entry.response();
+        DailyForecast daily = response.getDaily();
+        byte[] text = daily != null || response.getExtendedForecast() == null ? null
+                : response.getExtendedForecast().getBytes(StandardCharsets.UTF_8);
+        int forecastBytes = daily != null ? Long.BYTES + Short.BYTES + 2 * Float.BYTES * daily.days()
+                : text != null ? Integer.BYTES + text.length : 0;
+        ByteBuffer body = ByteBuffer.allocate(MIN_BODY_BYTES + key.length + forecastBytes);
+        body.putLong(entry.writtenAtMillis())
+                .putShort((short) key.length)
+                .put(key)
+                .putDouble(response.getCurrentTemp())
+                .putDouble(response.getMaxTemp())
+                .putDouble(response.getMinTemp());
+        if (daily != null) {
+            body.put(DAILY_FORECAST).putLong(daily.firstEpochDay()).putShort((short) daily.days());
+            for (int day = 0; day < daily.days(); day++) {
+                body.putFloat(daily.maxTemp(day));
+            }
+            for (int day = 0; day < daily.days(); day++) {
+                body.putFloat(daily.minTemp(day));
+            }
+        } else if (text != null) {
+            body.put(TEXT_FORECAST).putInt(text.length).put(text);
+        } else {
+            body.put(NO_FORECAST);
+        }
+        return body.array();
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
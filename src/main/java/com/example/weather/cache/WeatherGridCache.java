@@ -0,0 +1,111 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.WeatherGridProperties;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches forecasts per lat/lon grid cell instead of per zip code.
+ * <p>
+ * Open-Meteo's model resolution is several kilometres, so neighbouring zip codes get practically the same
+ * forecast. Every point in a cell is answered with the forecast for the cell centre, fetched once.
+ */
+@Component
+public class WeatherGridCache {
+
+    public interface ForecastFetcher {
+        WeatherResponse fetch(double latitude, double longitude);
+    }
+
+    private final AsyncCache<Long, WeatherResponse> cache;
+    private final boolean enabled;
+    private final double step;
+
+    @Autowired
+    public WeatherGridCache(@Qualifier("weatherGridCaffeineCache") AsyncCache<Long, WeatherResponse> cache,
+                            WeatherGridProperties properties) {
+        this.cache = cache;
+        this.enabled = properties.isEnabled() && properties.getStepDegrees() > 0;
+        this.step = properties.getStepDegrees();
+    }
+
+    public WeatherResponse get(double latitude, double longitude, ForecastFetcher fetcher) {
+        if (!enabled) {
+            return fetcher.fetch(latitude, longitude);
+        }
+        long row = row(latitude);
+        long col = col(longitude);
+        // responses are immutable, so every zip code in the cell shares the one forecast
+        return SingleFlight.getOrLoad(cache, cellKey(row, col), () -> fetcher.fetch(center(row), center(col))).value();
+    }
+
+    // Like get, but a cell forecast older than maxAge is fetched again, so a refreshed zip entry never gets stale cell data
+    public WeatherResponse getNoOlderThan(double latitude, double longitude, Duration maxAge, ForecastFetcher fetcher) {
+        if (enabled) {
+            Long key = cellKey(row(latitude), col(longitude));
+            boolean stale = cache.synchronous().policy().expireAfterWrite()
+                    .map(policy -> policy.ageOf(key).map(age -> age.compareTo(maxAge) >= 0).orElse(false))
+                    .orElse(false);
+            if (stale) {
+                cache.synchronous().invalidate(key);
+            }
+        }
+        return get(latitude, longitude, fetcher);
+    }
+
+    // The coordinates a forecast for this point should be fetched at: the cell centre, or the point itself when disabled
+    public double[] snap(double latitude, double longitude) {
+        return enabled
+                ? new double[]{center(row(latitude)), center(col(longitude))}
+                : new double[]{latitude, longitude};
+    }
+
+    public WeatherResponse getIfPresent(double latitude, double longitude) {
+        if (!enabled) {
+            return null;
+        }
+        CompletableFuture<WeatherResponse> entry = cache.getIfPresent(cellKey(row(latitude), col(longitude)));
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally() ? entry.join() : null;
+    }
+
+    public void put(double latitude, double longitude, WeatherResponse response) {
+        if (enabled && response != null) {
+            cache.put(cellKey(row(latitude), col(longitude)), CompletableFuture.completedFuture(response));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor(latitude / step);
+    }
+
+    private long col(double longitude) {
+        return (long) Math.floor(longitude / step);
+    }
+
+    private double center(long index) {
+        return (index + 0.5) * step;
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.EncodedWeather;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the form a weather response is cached in, with its JSON encoded once by the same {@link ObjectMapper} the
+ * controllers use. Cache hits then write the stored bytes instead of running Jackson again.
+ */
+@Slf4j
+@Component
+public class WeatherJsonEncoder {
+
+    private final ObjectWriter writer;
+
+    public WeatherJsonEncoder(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(WeatherResponse.class);
+    }
+
+    /**
+     * The response as served from the cache: fromCache set and its JSON attached. One that can't be encoded is still
+     * returned, without the bytes, and serialized per request.
+     */
+    public WeatherResponse toCached(WeatherResponse response) {
+        if (response == null) {
+            return null;
+        }
+        WeatherResponse cached = response.withFromCache(true);
+        if (cached.getEncoded() != null) {
+            return cached;
+        }
+        try {
+            return cached.withEncoded(new EncodedWeather(writer.writeValueAsBytes(cached)));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not pre-encode weather response, it will be serialized per request", e);
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.EncodedWeather;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * Approximate retained heap of one weather cache entry in bytes, so the cache is bounded by memory rather than by
+ * entry count. Assumes a 64-bit JVM with compressed references; close enough to size the cache, not an exact measure.
+ */
+public class WeatherResponseWeigher implements Weigher<String, WeatherResponse> {
+
+    // Caffeine node with its expiry and weight fields, plus the completed future an async cache stores
+    static final int ENTRY_OVERHEAD_BYTES = 96;
+    // WeatherResponse: header, three doubles, the fetch time, four references and the fromCache flag
+    static final int RESPONSE_BYTES = 64;
+
+    @Override
+    public int weigh(String key, WeatherResponse value) {
+        return ENTRY_OVERHEAD_BYTES + stringBytes(key) + RESPONSE_BYTES + forecastBytes(value) + encodedBytes(value);
+    }
+
+    private static int encodedBytes(WeatherResponse value) {
+        EncodedWeather encoded = value.getEncoded();
+        return encoded == null ? 0 : encoded.estimatedBytes();
+    }
+
+    private static int forecastBytes(WeatherResponse value) {
+        DailyForecast daily = value.getDaily();
+        if (daily != null) {
+            return daily.estimatedBytes();
+        }
+        // free text: String plus its byte[], one byte per char for Latin-1, two otherwise; counted as two to stay conservative
+        String text = value.getExtendedForecast();
+        return text == null ? 0 : 24 + 16 + 2 * text.length();
+    }
+
+    private static int stringBytes(String s) {
+        return 24 + 16 + s.length();
+    }
+}
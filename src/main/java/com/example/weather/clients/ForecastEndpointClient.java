@@ -0,0 +1,38 @@
+package com.example.weather.clients;
+
+import com.example.weather.interfaces.WeatherClient;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.response.WeatherResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+/**
+ * One Open-Meteo-compatible forecast endpoint, e.g. the public API, a self-hosted instance or the commercial one.
+ * Calls are paced on the upstream lane named after the endpoint and timed under the same name.
+ */
+public class ForecastEndpointClient implements WeatherClient {
+
+    private final String name;
+    private final String url;
+    private final RestTemplate restTemplate;
+    private final UpstreamScheduler upstreamScheduler;
+    private final WeatherMetrics metrics;
+
+    public ForecastEndpointClient(String name, String url, RestTemplate restTemplate,
+                                  UpstreamScheduler upstreamScheduler, WeatherMetrics metrics) {
+        this.name = name;
+        this.url = url;
+        this.restTemplate = restTemplate;
+        this.upstreamScheduler = upstreamScheduler;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public WeatherResponse getWeather(double lattitude, double longitude) {
+        URI uri = OpenMeteoWeatherClient.forecastUri(url, lattitude, longitude);
+        return upstreamScheduler.execute(name, uri.toString(), () -> metrics.timeUpstream(name,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response -> UpstreamJsonParser.parseForecast(response.getBody()))));
+    }
+}
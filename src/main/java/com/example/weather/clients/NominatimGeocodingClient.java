@@ -1,38 +1,72 @@
 package com.example.weather.clients;
 
+import com.example.weather.cache.GeocodingCache;
 import com.example.weather.interfaces.GeocodingClient;
+import com.example.weather.metrics.WeatherMetrics;
 import com.example.weather.model.request.Coordinates;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+
 @Service
 public class NominatimGeocodingClient implements GeocodingClient {
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    private final UpstreamScheduler upstreamScheduler;
+
+    private final GeocodingCache geocodingCache;
+
+    private final WeatherMetrics metrics;
+
+    @Value("${geo.api.url:https://nominatim.openstreetmap.org/search}")
+    private String geoApiUrl = "https://nominatim.openstreetmap.org/search";
+
+    public NominatimGeocodingClient(@Qualifier("upstreamRestTemplate") RestTemplate restTemplate,
+                                    UpstreamScheduler upstreamScheduler,
+                                    GeocodingCache geocodingCache,
+                                    WeatherMetrics metrics) {
+        this.restTemplate = restTemplate;
+        this.upstreamScheduler = upstreamScheduler;
+        this.geocodingCache = geocodingCache;
+        this.metrics = metrics;
+    }
 
     @Override
     public Coordinates getCoordinates(String zipCode, String countrycodes) {
-        String url = UriComponentsBuilder.fromHttpUrl("https://nominatim.openstreetmap.org/search")
+        Coordinates known = geocodingCache.get(zipCode, countrycodes);
+        if (known != null) {
+            return known;
+        }
+
+        URI uri = searchUri(zipCode, countrycodes);
+        Coordinates found = upstreamScheduler.execute(WeatherMetrics.NOMINATIM, uri.toString(), () -> metrics.timeUpstream(WeatherMetrics.NOMINATIM,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response -> UpstreamJsonParser.parseFirstPlace(response.getBody()))));
+        return remember(zipCode, countrycodes, found);
+    }
+
+    private URI searchUri(String zipCode, String countrycodes) {
+        return UriComponentsBuilder.fromHttpUrl(geoApiUrl)
                 .queryParam("format", "json")
                 .queryParam("postalcode", zipCode)
                 .queryParam("countrycodes", countrycodes)
                 .queryParam("limit", "1")
-                .toUriString();
-
-        String response = restTemplate.getForObject(url, String.class);
-        JSONArray jsonArray = new JSONArray(response);
+                .encode()
+                .build()
+                .toUri();
+    }
 
-        if (jsonArray.isEmpty()) {
-            throw new RuntimeException("Location not found for ZIP: " + zipCode);
+    private Coordinates remember(String zipCode, String countrycodes, Coordinates coordinates) {
+        if (coordinates == null) {
+            return null;
         }
 
-        JSONObject location = jsonArray.getJSONObject(0);
-        double lat = location.getDouble("lat");
-        double lon = location.getDouble("lon");
-
-        return new Coordinates(lat, lon);
+        geocodingCache.put(zipCode, countrycodes, coordinates);
+        return coordinates;
     }
 
 }
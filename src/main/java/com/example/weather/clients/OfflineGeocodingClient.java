@@ -0,0 +1,58 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.OfflineGeocodingProperties;
+import com.example.weather.interfaces.GeocodingClient;
+import com.example.weather.model.request.Coordinates;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Geocodes from a local {@link PostalCodeIndex} and only asks Nominatim about postal codes it doesn't know.
+ * With no dataset configured the index is empty and every lookup goes to Nominatim, as before.
+ */
+@Slf4j
+@Primary
+@Service
+public class OfflineGeocodingClient implements GeocodingClient {
+
+    private final NominatimGeocodingClient nominatim;
+
+    private final OfflineGeocodingProperties properties;
+
+    private volatile PostalCodeIndex index = PostalCodeIndex.empty();
+
+    public OfflineGeocodingClient(NominatimGeocodingClient nominatim, OfflineGeocodingProperties properties) {
+        this.nominatim = nominatim;
+        this.properties = properties;
+    }
+
+    @Override
+    public Coordinates getCoordinates(String zipCode, String countrycodes) {
+        Coordinates local = index.find(zipCode, countrycodes);
+        return local != null ? local : nominatim.getCoordinates(zipCode, countrycodes);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @PostConstruct
+    public void loadDataset() {
+        String datasetPath = properties.getDatasetPath();
+        if (datasetPath == null || datasetPath.isBlank()) {
+            return;
+        }
+        try {
+            index = PostalCodeIndex.load(Path.of(datasetPath), properties.getMaxEntries(),
+                    Duration.ofSeconds(properties.getMaxLoadSeconds()));
+        } catch (IOException e) {
+            log.warn("Could not load postal codes from {}, geocoding with Nominatim only", datasetPath, e);
+        }
+    }
+}
@@ -1,38 +1,88 @@
 package com.example.weather.clients;
 
+import com.example.weather.cache.WeatherGridCache;
 import com.example.weather.interfaces.WeatherClient;
+import com.example.weather.metrics.WeatherMetrics;
 import com.example.weather.model.response.WeatherResponse;
-import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
 @Service
 public class OpenMeteoWeatherClient implements WeatherClient {
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    private final UpstreamScheduler upstreamScheduler;
+
+    private final WeatherGridCache weatherGridCache;
+
+    private final WeatherMetrics metrics;
+
+    @Value("${weather.api.url:https://api.open-meteo.com/v1/forecast}")
+    private String weatherApiUrl = "https://api.open-meteo.com/v1/forecast";
+
+    public OpenMeteoWeatherClient(@Qualifier("upstreamRestTemplate") RestTemplate restTemplate,
+                                  UpstreamScheduler upstreamScheduler,
+                                  WeatherGridCache weatherGridCache,
+                                  WeatherMetrics metrics) {
+        this.restTemplate = restTemplate;
+        this.upstreamScheduler = upstreamScheduler;
+        this.weatherGridCache = weatherGridCache;
+        this.metrics = metrics;
+    }
 
     @Override
     public WeatherResponse getWeather(double lattitude, double longitude) {
-        String url = UriComponentsBuilder.fromHttpUrl("https://api.open-meteo.com/v1/forecast")
+        return weatherGridCache.get(lattitude, longitude, this::fetchWeather);
+    }
+
+    private WeatherResponse fetchWeather(double lattitude, double longitude) {
+        URI uri = forecastUri(weatherApiUrl, lattitude, longitude);
+        return upstreamScheduler.execute(WeatherMetrics.OPEN_METEO, uri.toString(), () -> metrics.timeUpstream(WeatherMetrics.OPEN_METEO,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response -> UpstreamJsonParser.parseForecast(response.getBody()))));
+    }
+
+    // Open-Meteo takes comma-separated coordinate lists and answers with an array in the same order
+    public List<WeatherResponse> getWeather(List<double[]> points) {
+        URI uri = forecastUri(weatherApiUrl, points);
+        return upstreamScheduler.execute(WeatherMetrics.OPEN_METEO, uri.toString(), () -> metrics.timeUpstream(WeatherMetrics.OPEN_METEO,
+                () -> restTemplate.execute(uri, HttpMethod.GET, null, response -> UpstreamJsonParser.parseForecasts(response.getBody()))));
+    }
+
+    static URI forecastUri(String baseUrl, double lattitude, double longitude) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("latitude", lattitude)
                 .queryParam("longitude", longitude)
                 .queryParam("current_weather", "true")
                 .queryParam("daily", "temperature_2m_max,temperature_2m_min")
                 .queryParam("timezone", "auto")
-                .toUriString();
-
-        String response = restTemplate.getForObject(url, String.class);
-        JSONObject json = new JSONObject(response);
-
-        JSONObject current = json.getJSONObject("current_weather");
-        JSONObject daily = json.getJSONObject("daily");
+                .encode()
+                .build()
+                .toUri();
+    }
 
-        double currentTemp = current.getDouble("temperature");
-        double minTemp = daily.getJSONArray("temperature_2m_min").getDouble(0);
-        double maxTemp = daily.getJSONArray("temperature_2m_max").getDouble(0);
-        String extendedForecast = "Sample extended forecast (API doesn’t provide directly)";
+    static URI forecastUri(String baseUrl, List<double[]> points) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("latitude", coordinateList(points, 0))
+                .queryParam("longitude", coordinateList(points, 1))
+                .queryParam("current_weather", "true")
+                .queryParam("daily", "temperature_2m_max,temperature_2m_min")
+                .queryParam("timezone", "auto")
+                .encode()
+                .build()
+                .toUri();
+    }
 
-        return new WeatherResponse(currentTemp, minTemp, maxTemp, extendedForecast, false);
+    private static String coordinateList(List<double[]> points, int axis) {
+        return points.stream().map(p -> String.format(Locale.ROOT, "%f", p[axis])).collect(Collectors.joining(","));
     }
 
 }
@@ -0,0 +1,119 @@
+package com.example.weather.clients;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of in-flight requests per upstream host. The JDK client opens one HTTP/1.1 connection per
+ * concurrent request, so this is also the per-host connection limit. Callers that cannot get a permit within
+ * the wait time fail with {@link ResourceAccessException} rather than queueing behind a slow upstream.
+ */
+public class PerHostRequestLimiter implements ClientHttpRequestInterceptor {
+
+    private final ConcurrentHashMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final int maxPerHost;
+    private final long maxWaitMillis;
+
+    public PerHostRequestLimiter(int maxPerHost, long maxWaitMillis) {
+        this.maxPerHost = maxPerHost;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String host = hostOf(request.getURI());
+        acquire(host, maxWaitMillis);
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            release(host);
+            throw e;
+        }
+        // The body is still being streamed when we return, so hold the permit until RestTemplate closes it
+        return new PermitReleasingResponse(response, () -> release(host));
+    }
+
+    private void acquire(String host, long waitMillis) {
+        Semaphore semaphore = permits.computeIfAbsent(host, h -> new Semaphore(maxPerHost));
+        try {
+            if (!semaphore.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new ResourceAccessException("Too many concurrent requests to " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for a connection to " + host);
+        }
+    }
+
+    private void release(String host) {
+        Semaphore semaphore = permits.get(host);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    public int inFlight(String host) {
+        Semaphore semaphore = permits.get(host);
+        return semaphore == null ? 0 : maxPerHost - semaphore.availablePermits();
+    }
+
+    public static String hostOf(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Runnable onClose;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        PermitReleasingResponse(ClientHttpResponse delegate, Runnable onClose) {
+            this.delegate = delegate;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    onClose.run();
+                }
+            }
+        }
+    }
+}
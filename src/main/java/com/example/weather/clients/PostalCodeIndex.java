@@ -0,0 +1,250 @@
+package com.example.weather.clients;
+
+import com.example.weather.model.request.Coordinates;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Read-only country + postal code → lat/lon index, loaded from a GeoNames postal-code dump
+ * (tab-separated: country code, postal code, place name, admin names/codes, latitude, longitude, accuracy).
+ * <p>
+ * Each key is packed into one long (country in the top bits, up to 10 postal-code characters in base 38 below it),
+ * kept in a sorted {@code long[]} with parallel {@code float[]} latitudes and longitudes. That is 16 bytes per postal
+ * code and a binary search per lookup, with no objects per entry. Codes that don't fit the packing are skipped, and
+ * callers fall back to Nominatim for them.
+ */
+@Slf4j
+public final class PostalCodeIndex {
+
+    private static final int MAX_CODE_CHARS = 10;
+    private static final int RADIX = 38; // 0 = padding, then 0-9, A-Z and '-'
+    private static final int LATITUDE_COLUMN = 9;
+
+    private final long[] keys;
+    private final float[] latitudes;
+    private final float[] longitudes;
+
+    private PostalCodeIndex(long[] keys, float[] latitudes, float[] longitudes) {
+        this.keys = keys;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    public static PostalCodeIndex empty() {
+        return new PostalCodeIndex(new long[0], new float[0], new float[0]);
+    }
+
+    /**
+     * Loads at most {@code maxEntries} postal codes, stopping early once {@code maxLoadTime} has passed. A partial index
+     * is still correct, it just answers fewer lookups. Where the dump lists a postal code more than once, one row is kept.
+     */
+    public static PostalCodeIndex load(Path dataset, int maxEntries, Duration maxLoadTime) throws IOException {
+        long started = System.nanoTime();
+        long deadline = started + maxLoadTime.toNanos();
+        // rows are ~60-80 bytes, so this avoids most regrowth without reserving the whole budget for a small file
+        int capacity = (int) Math.min(maxEntries, Files.size(dataset) / 48 + 16);
+        long[] keys = new long[capacity];
+        float[] latitudes = new float[capacity];
+        float[] longitudes = new float[capacity];
+        int size = 0;
+        int skipped = 0;
+        String stoppedBy = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(dataset, StandardCharsets.UTF_8)) {
+            String line;
+            int rows = 0;
+            while ((line = reader.readLine()) != null) {
+                if ((++rows & 0xFFF) == 0 && System.nanoTime() > deadline) {
+                    stoppedBy = "load time budget of " + maxLoadTime.toMillis() + " ms";
+                    break;
+                }
+                int countryEnd = line.indexOf('\t');
+                int codeEnd = countryEnd < 0 ? -1 : line.indexOf('\t', countryEnd + 1);
+                int latitudeStart = codeEnd < 0 ? -1 : columnStart(line, codeEnd, LATITUDE_COLUMN - 2);
+                int latitudeEnd = latitudeStart < 0 ? -1 : line.indexOf('\t', latitudeStart);
+                int longitudeEnd = latitudeEnd < 0 ? -1 : line.indexOf('\t', latitudeEnd + 1);
+                long key = countryEnd == 2 && codeEnd > 0 ? pack(line.substring(0, 2), line.substring(countryEnd + 1, codeEnd)) : -1;
+                if (key < 0 || latitudeEnd < 0) {
+                    skipped++;
+                    continue;
+                }
+                float latitude;
+                float longitude;
+                try {
+                    latitude = Float.parseFloat(line.substring(latitudeStart, latitudeEnd));
+                    longitude = Float.parseFloat(line.substring(latitudeEnd + 1, longitudeEnd < 0 ? line.length() : longitudeEnd));
+                } catch (NumberFormatException e) {
+                    skipped++;
+                    continue;
+                }
+                if (size == maxEntries) {
+                    stoppedBy = "entry budget of " + maxEntries;
+                    break;
+                }
+                if (size == keys.length) {
+                    int grown = (int) Math.min(maxEntries, 2L * size);
+                    keys = Arrays.copyOf(keys, grown);
+                    latitudes = Arrays.copyOf(latitudes, grown);
+                    longitudes = Arrays.copyOf(longitudes, grown);
+                }
+                keys[size] = key;
+                latitudes[size] = latitude;
+                longitudes[size] = longitude;
+                size++;
+            }
+        }
+
+        sort(keys, latitudes, longitudes, 0, size - 1);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) {
+                keys[unique] = keys[i];
+                latitudes[unique] = latitudes[i];
+                longitudes[unique] = longitudes[i];
+                unique++;
+            }
+        }
+        if (stoppedBy != null) {
+            log.warn("Stopped loading postal codes from {} at the {}; the rest fall back to Nominatim", dataset, stoppedBy);
+        }
+        log.info("Loaded {} postal codes from {} in {} ms ({} rows skipped, {} duplicates)", unique, dataset,
+                (System.nanoTime() - started) / 1_000_000, skipped, size - unique);
+        return new PostalCodeIndex(Arrays.copyOf(keys, unique), Arrays.copyOf(latitudes, unique), Arrays.copyOf(longitudes, unique));
+    }
+
+    /**
+     * Coordinates for the postal code in the first of the comma-separated country codes that has it, or null.
+     * Matching ignores case and whitespace, like {@link com.example.weather.cache.GeocodingCache#normalizeKey}.
+     */
+    public Coordinates find(String zipCode, String countrycodes) {
+        if (zipCode == null || countrycodes == null || keys.length == 0) {
+            return null;
+        }
+        int from = 0;
+        while (from <= countrycodes.length()) {
+            int comma = countrycodes.indexOf(',', from);
+            int to = comma < 0 ? countrycodes.length() : comma;
+            long key = pack(countrycodes.substring(from, to).trim(), zipCode);
+            if (key >= 0) {
+                int slot = Arrays.binarySearch(keys, key);
+                if (slot >= 0) {
+                    return new Coordinates(latitudes[slot], longitudes[slot]);
+                }
+            }
+            from = to + 1;
+        }
+        return null;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    // Country in bits 53-62 and the code in base 38 below; -1 when either doesn't fit
+    static long pack(String country, String postalCode) {
+        if (country.length() != 2) {
+            return -1;
+        }
+        int first = letter(country.charAt(0));
+        int second = letter(country.charAt(1));
+        if (first < 0 || second < 0) {
+            return -1;
+        }
+        long code = 0;
+        int chars = 0;
+        for (int i = 0; i < postalCode.length(); i++) {
+            char c = postalCode.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            int digit = codeDigit(c);
+            if (digit < 0 || ++chars > MAX_CODE_CHARS) {
+                return -1;
+            }
+            code = code * RADIX + digit;
+        }
+        if (chars == 0) {
+            return -1;
+        }
+        for (; chars < MAX_CODE_CHARS; chars++) {
+            code *= RADIX;
+        }
+        return ((long) (first * 26 + second) << 53) | code;
+    }
+
+    private static int letter(char c) {
+        char upper = Character.toUpperCase(c);
+        return upper >= 'A' && upper <= 'Z' ? upper - 'A' : -1;
+    }
+
+    private static int codeDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return 1 + c - '0';
+        }
+        char upper = Character.toUpperCase(c);
+        if (upper >= 'A' && upper <= 'Z') {
+            return 11 + upper - 'A';
+        }
+        return c == '-' ? 37 : -1;
+    }
+
+    // Start of the column that follows tabsToSkip more tabs after the given one; -1 if the row is shorter
+    private static int columnStart(String line, int tab, int tabsToSkip) {
+        int position = tab;
+        for (int i = 0; i < tabsToSkip && position >= 0; i++) {
+            position = line.indexOf('\t', position + 1);
+        }
+        return position < 0 ? -1 : position + 1;
+    }
+
+    // Quicksort over the parallel arrays; the recursion goes into the smaller side so the stack stays O(log n)
+    private static void sort(long[] keys, float[] latitudes, float[] longitudes, int low, int high) {
+        while (high - low > 16) {
+            long pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, latitudes, longitudes, i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(keys, latitudes, longitudes, low, j);
+                low = i;
+            } else {
+                sort(keys, latitudes, longitudes, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && keys[j - 1] > keys[j]; j--) {
+                swap(keys, latitudes, longitudes, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, float[] latitudes, float[] longitudes, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        float latitude = latitudes[a];
+        latitudes[a] = latitudes[b];
+        latitudes[b] = latitude;
+        float longitude = longitudes[a];
+        longitudes[a] = longitudes[b];
+        longitudes[b] = longitude;
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.WeatherRoutingProperties;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.interfaces.WeatherClient;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.response.WeatherResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forecasts from whichever of several providers is currently fastest. Each provider keeps an EWMA of its latency and
+ * error rate, and calls go to the fastest provider that isn't failing. A provider that is failing gets one probe call
+ * per probe interval, so it can win its traffic back once it recovers.
+ * <p>
+ * When the chosen provider takes longer than its own recent p95, the next one is asked as well and the first answer
+ * wins (a hedged request). Hedges are capped at a share of routed calls. A provider that fails outright is followed by
+ * the next one in line. Every provider speaks the Open-Meteo API, so all answers are parsed into the same
+ * {@link WeatherResponse}.
+ */
+@Slf4j
+@Primary
+@Service
+public class RoutingWeatherClient implements WeatherClient {
+
+    // successful calls before a provider's p95 is trusted enough to hedge on
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final List<Route> routes;
+    private final WeatherRoutingProperties properties;
+    private final WeatherMetrics metrics;
+    private final ExecutorService callers;
+    private final long probeIntervalNanos;
+    private final AtomicLong routedCalls = new AtomicLong();
+    private final AtomicLong hedgedCalls = new AtomicLong();
+
+    @Autowired
+    public RoutingWeatherClient(WeatherRoutingProperties properties,
+                                @Qualifier("upstreamRestTemplate") RestTemplate restTemplate,
+                                UpstreamScheduler upstreamScheduler,
+                                WeatherMetrics metrics,
+                                @Value("${weather.api.url}") String weatherApiUrl) {
+        this(endpoints(properties, weatherApiUrl, restTemplate, upstreamScheduler, metrics), properties, metrics);
+    }
+
+    // Providers by name, in order of preference until their latencies are known
+    public RoutingWeatherClient(Map<String, WeatherClient> providers, WeatherRoutingProperties properties, WeatherMetrics metrics) {
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("weather.routing.providers has no provider with a url");
+        }
+        this.properties = properties;
+        this.metrics = metrics;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getProbeIntervalMillis());
+        this.routes = providers.entrySet().stream()
+                .map(provider -> new Route(provider.getKey(), provider.getValue(), properties))
+                .toList();
+        // a cached pool, since the calls themselves are bounded by each provider's pacing lane
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("weather-route-");
+        threadFactory.setDaemon(true);
+        this.callers = Executors.newCachedThreadPool(threadFactory);
+        if (routes.size() > 1) {
+            log.info("Routing forecasts between {}", providers.keySet());
+        }
+    }
+
+    @Override
+    public WeatherResponse getWeather(double lattitude, double longitude) {
+        List<Route> ranked = rank();
+        if (ranked.size() == 1) {
+            // nothing to choose between or hedge to, so no hop to another thread either
+            return ranked.get(0).call(lattitude, longitude);
+        }
+        routedCalls.incrementAndGet();
+        Route primary = ranked.get(0);
+        CompletableFuture<WeatherResponse> primaryCall = submit(primary, lattitude, longitude);
+
+        long hedgeAfter = hedgeDelayMillis(primary);
+        if (hedgeAfter >= 0) {
+            try {
+                return primaryCall.get(hedgeAfter, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (takeHedge()) {
+                    return hedge(primaryCall, ranked, lattitude, longitude);
+                }
+            } catch (ExecutionException e) {
+                // failed before the hedge delay; the next provider is tried below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for " + primary.name, e);
+            }
+        }
+        try {
+            return await(primaryCall);
+        } catch (RuntimeException e) {
+            return failOver(ranked.subList(1, ranked.size()), lattitude, longitude, e);
+        }
+    }
+
+    public List<String> providerNames() {
+        return routes.stream().map(route -> route.name).toList();
+    }
+
+    // Latency EWMA of a provider's successful calls, in milliseconds; 0 until it has answered once
+    public double latencyMillis(String provider) {
+        return route(provider).expectedMillis();
+    }
+
+    public double errorRate(String provider) {
+        return route(provider).errorRate;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callers.shutdownNow();
+    }
+
+    // A probe of a failing provider that is due goes first, then healthy providers by latency, then failing ones
+    private List<Route> rank() {
+        long now = System.nanoTime();
+        Route probe = null;
+        List<Route> healthy = new ArrayList<>(routes.size());
+        List<Route> failing = new ArrayList<>(0);
+        for (Route route : routes) {
+            if (route.errorRate <= properties.getMaxErrorRate()) {
+                healthy.add(route);
+            } else if (probe == null && route.claimProbe(now, probeIntervalNanos)) {
+                probe = route;
+            } else {
+                failing.add(route);
+            }
+        }
+        healthy.sort(Comparator.comparingDouble(Route::expectedMillis));
+        failing.sort(Comparator.comparingDouble(route -> route.errorRate));
+        List<Route> ranked = new ArrayList<>(routes.size());
+        if (probe != null) {
+            ranked.add(probe);
+        }
+        ranked.addAll(healthy);
+        ranked.addAll(failing);
+        return ranked;
+    }
+
+    private long hedgeDelayMillis(Route primary) {
+        long p95 = primary.p95Millis;
+        if (!properties.isHedgingEnabled() || p95 < 0) {
+            return -1;
+        }
+        return Math.max(properties.getHedgeMinDelayMillis(), p95);
+    }
+
+    private boolean takeHedge() {
+        long allowed = routedCalls.get() * properties.getHedgeBudgetPercent() / 100;
+        if (hedgedCalls.incrementAndGet() <= allowed) {
+            return true;
+        }
+        hedgedCalls.decrementAndGet();
+        return false;
+    }
+
+    // The slow call keeps running: its latency, however long, is what moves traffic away from its provider
+    private WeatherResponse hedge(CompletableFuture<WeatherResponse> primaryCall, List<Route> ranked, double lattitude, double longitude) {
+        Route backup = ranked.get(1);
+        log.debug("{} slower than {} ms, hedging to {}", ranked.get(0).name, hedgeDelayMillis(ranked.get(0)), backup.name);
+        CompletableFuture<WeatherResponse> hedgeCall = submit(backup, lattitude, longitude);
+        CompletableFuture<WeatherResponse> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<WeatherResponse> call : List.of(primaryCall, hedgeCall)) {
+            call.whenComplete((response, error) -> {
+                if (error == null) {
+                    first.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        try {
+            WeatherResponse response = await(first);
+            metrics.forecastHedge(hedgeCall.isDone() && !hedgeCall.isCompletedExceptionally() && hedgeCall.getNow(null) == response);
+            return response;
+        } catch (RuntimeException e) {
+            metrics.forecastHedge(false);
+            return failOver(ranked.subList(2, ranked.size()), lattitude, longitude, e);
+        }
+    }
+
+    // Tries the remaining providers in turn; a provider's own pacing turning the call away moves on to the next too
+    private WeatherResponse failOver(List<Route> remaining, double lattitude, double longitude, RuntimeException failure) {
+        for (Route route : remaining) {
+            log.debug("Forecast call failed ({}), trying {}", failure.getMessage(), route.name);
+            try {
+                return route.call(lattitude, longitude);
+            } catch (RuntimeException e) {
+                if (!(failure instanceof RateLimitExceededException) || e instanceof RateLimitExceededException) {
+                    failure = e;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private CompletableFuture<WeatherResponse> submit(Route route, double lattitude, double longitude) {
+        return CompletableFuture.supplyAsync(() -> route.call(lattitude, longitude), callers);
+    }
+
+    private static WeatherResponse await(CompletableFuture<WeatherResponse> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Route route(String provider) {
+        return routes.stream().filter(route -> route.name.equals(provider)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown weather provider: " + provider));
+    }
+
+    private static Map<String, WeatherClient> endpoints(WeatherRoutingProperties properties, String weatherApiUrl,
+                                                        RestTemplate restTemplate, UpstreamScheduler upstreamScheduler,
+                                                        WeatherMetrics metrics) {
+        Map<String, WeatherClient> endpoints = new LinkedHashMap<>();
+        for (WeatherRoutingProperties.Provider provider : properties.getProviders()) {
+            if (provider.getUrl() != null && !provider.getUrl().isBlank()) {
+                if (!upstreamScheduler.hasLane(provider.getName())) {
+                    log.warn("Weather provider {} has no upstream.pacing.lanes.{} entry, pacing it with the lane defaults",
+                            provider.getName(), provider.getName());
+                }
+                endpoints.put(provider.getName(), new ForecastEndpointClient(provider.getName(), provider.getUrl().trim(),
+                        restTemplate, upstreamScheduler, metrics));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            endpoints.put(WeatherMetrics.OPEN_METEO, new ForecastEndpointClient(WeatherMetrics.OPEN_METEO, weatherApiUrl,
+                    restTemplate, upstreamScheduler, metrics));
+        }
+        return endpoints;
+    }
+
+    private static final class Route {
+        final String name;
+        final WeatherClient client;
+        final double weight;
+        final AtomicLong lastProbeNanos = new AtomicLong(System.nanoTime());
+        // guarded by the route; the averages are read without the lock
+        final long[] window;
+        int samples;
+        int next;
+        volatile double latencyEwmaMillis = -1;
+        volatile double errorRate;
+        volatile long p95Millis = -1;
+
+        Route(String name, WeatherClient client, WeatherRoutingProperties properties) {
+            this.name = name;
+            this.client = client;
+            this.weight = properties.getEwmaWeight();
+            this.window = new long[Math.max(MIN_HEDGE_SAMPLES, properties.getLatencyWindow())];
+        }
+
+        WeatherResponse call(double lattitude, double longitude) {
+            long start = System.nanoTime();
+            WeatherResponse response;
+            try {
+                response = client.getWeather(lattitude, longitude);
+            } catch (RateLimitExceededException e) {
+                // our own pacing turned it away, which says nothing about the provider
+                throw e;
+            } catch (RuntimeException e) {
+                record(0, true);
+                throw e;
+            }
+            if (response == null) {
+                record(0, true);
+                throw new IllegalStateException("Empty response body from " + name);
+            }
+            record(System.nanoTime() - start, false);
+            return response;
+        }
+
+        // Untried providers count as fast, so each one gets a first call and a latency of its own
+        double expectedMillis() {
+            return Math.max(0, latencyEwmaMillis);
+        }
+
+        boolean claimProbe(long now, long intervalNanos) {
+            long last = lastProbeNanos.get();
+            return now - last >= intervalNanos && lastProbeNanos.compareAndSet(last, now);
+        }
+
+        synchronized void record(long nanos, boolean failed) {
+            errorRate += weight * ((failed ? 1 : 0) - errorRate);
+            if (failed) {
+                return;
+            }
+            double millis = nanos / 1_000_000.0;
+            latencyEwmaMillis = latencyEwmaMillis < 0 ? millis : latencyEwmaMillis + weight * (millis - latencyEwmaMillis);
+            window[next] = nanos;
+            next = (next + 1) % window.length;
+            samples = Math.min(samples + 1, window.length);
+            if (samples >= MIN_HEDGE_SAMPLES) {
+                long[] sorted = Arrays.copyOf(window, samples);
+                Arrays.sort(sorted);
+                p95Millis = TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(samples * 0.95) - 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.weather.clients;
+
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Token-stream parser for the Open-Meteo and Nominatim responses.
+ * <p>
+ * Reads the few fields we use straight off the response stream instead of building a tree or a String of the
+ * whole body first. Everything else is skipped without being materialised.
+ */
+public final class UpstreamJsonParser {
+
+    // JsonFactory is thread-safe and recycles its read buffers per thread, so one instance serves every call
+    private static final JsonFactory JSON = JsonFactory.builder().build();
+
+    private UpstreamJsonParser() {
+    }
+
+    // A single Open-Meteo forecast object
+    public static WeatherResponse parseForecast(InputStream body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readForecast(parser);
+        }
+    }
+
+    // Open-Meteo answers a multi-location request with an array, and a single location with a bare object
+    public static List<WeatherResponse> parseForecasts(InputStream body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            List<WeatherResponse> forecasts = new ArrayList<>();
+            if (token == JsonToken.START_OBJECT) {
+                forecasts.add(readForecast(parser));
+                return forecasts;
+            }
+            expect(parser, token, JsonToken.START_ARRAY);
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                forecasts.add(readForecast(parser));
+            }
+            return forecasts;
+        }
+    }
+
+    // First match of a Nominatim search, or null when nothing matched
+    public static Coordinates parseFirstPlace(InputStream body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            expect(parser, token, JsonToken.START_OBJECT);
+
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                // Nominatim sends lat/lon as strings; getValueAsDouble accepts either form
+                switch (field) {
+                    case "lat" -> lat = parser.getValueAsDouble(Double.NaN);
+                    case "lon" -> lon = parser.getValueAsDouble(Double.NaN);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (Double.isNaN(lat) || Double.isNaN(lon)) {
+                throw new JsonParseException(parser, "Nominatim result without lat/lon");
+            }
+            // the rest of the array is never read
+            return new Coordinates(lat, lon);
+        }
+    }
+
+    // Positioned on the forecast's START_OBJECT; returns positioned on its END_OBJECT
+    private static WeatherResponse readForecast(JsonParser parser) throws IOException {
+        double currentTemp = Double.NaN;
+        Daily daily = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("current_weather".equals(field) && value == JsonToken.START_OBJECT) {
+                currentTemp = readTemperature(parser);
+            } else if ("daily".equals(field) && value == JsonToken.START_OBJECT) {
+                daily = readDaily(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (Double.isNaN(currentTemp) || daily == null) {
+            throw new JsonParseException(parser, "Forecast without current_weather or daily");
+        }
+        return new WeatherResponse(currentTemp, daily.maxTemp, daily.minTemp, daily.series, false)
+                .withFetchedAtMillis(System.currentTimeMillis());
+    }
+
+    private static double readTemperature(JsonParser parser) throws IOException {
+        double temperature = Double.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("temperature".equals(field)) {
+                temperature = parser.getValueAsDouble();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return temperature;
+    }
+
+    private record Daily(double maxTemp, double minTemp, DailyForecast series) {
+    }
+
+    private record DayRange(long firstEpochDay, int days) {
+    }
+
+    private record Series(float[] values, double first) {
+    }
+
+    // The daily block is the extended forecast. It is kept as a first day plus float series rather than JSON text,
+    // and today's max/min are picked out at full precision. Daily variables we didn't ask for are skipped.
+    private static Daily readDaily(JsonParser parser) throws IOException {
+        DayRange range = null;
+        Series max = null;
+        Series min = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "time" -> range = readDays(parser);
+                case "temperature_2m_max" -> max = readSeries(parser);
+                case "temperature_2m_min" -> min = readSeries(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (range == null || max == null || min == null) {
+            throw new JsonParseException(parser, "Daily block without time, temperature_2m_max or temperature_2m_min");
+        }
+        if (max.values().length != range.days() || min.values().length != range.days()) {
+            throw new JsonParseException(parser, "Daily series don't match the " + range.days() + " days in time");
+        }
+        return new Daily(max.first(), min.first(), new DailyForecast(range.firstEpochDay(), max.values(), min.values()));
+    }
+
+    // Open-Meteo's daily time axis is a run of consecutive ISO dates, so only the first one needs keeping
+    private static DayRange readDays(JsonParser parser) throws IOException {
+        long firstEpochDay = 0;
+        int days = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            expect(parser, token, JsonToken.VALUE_STRING);
+            long epochDay;
+            try {
+                epochDay = LocalDate.parse(parser.getText()).toEpochDay();
+            } catch (DateTimeParseException e) {
+                throw new JsonParseException(parser, "Daily time is not an ISO date: " + parser.getText(), e);
+            }
+            if (days == 0) {
+                firstEpochDay = epochDay;
+            } else if (epochDay != firstEpochDay + days) {
+                throw new JsonParseException(parser, "Daily time is not a run of consecutive days at " + parser.getText());
+            }
+            days++;
+        }
+        return new DayRange(firstEpochDay, days);
+    }
+
+    // null entries (no data for that day) are kept as NaN
+    private static Series readSeries(JsonParser parser) throws IOException {
+        float[] values = new float[16];
+        int count = 0;
+        double first = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                values[count] = Float.NaN;
+            } else if (token.isNumeric()) {
+                double value = parser.getDoubleValue();
+                values[count] = (float) value;
+                if (count == 0) {
+                    first = value;
+                }
+            } else {
+                throw new JsonParseException(parser, "Expected a number in a daily series but got " + token);
+            }
+            count++;
+        }
+        return new Series(Arrays.copyOf(values, count), first);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
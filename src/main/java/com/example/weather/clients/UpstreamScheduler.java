@@ -0,0 +1,274 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.UpstreamPacingProperties;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.metrics.WeatherMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of each upstream (Nominatim, Open-Meteo). Calls wait in a bounded per-upstream queue
+ * and are dispatched evenly spaced at the configured rate, with at most a limited number in flight. That limit adapts
+ * AIMD-style: +1/limit after each call that succeeds within the latency target, halved after a failure or a slow call,
+ * so a struggling upstream gets fewer concurrent calls until it recovers.
+ * <p>
+ * Identical calls (same key) that are queued or in flight share one dispatch. A call is rejected up front with a 503
+ * and a Retry-After only when its estimated queue wait is longer than the caller is willing to wait.
+ */
+@Slf4j
+@Component
+public class UpstreamScheduler {
+
+    private final UpstreamPacingProperties properties;
+    private final WeatherMetrics metrics;
+    private final long maxQueueWaitNanos;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor pacer;
+
+    public UpstreamScheduler(UpstreamPacingProperties properties, WeatherMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxQueueWaitMillis());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("upstream-pacer-");
+        threadFactory.setDaemon(true);
+        this.pacer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        this.pacer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs a blocking call on the caller's thread once the upstream admits it. Callers with the same non-null key share
+     * the first caller's result (or exception) instead of dispatching again.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String upstream, String key, Supplier<T> call) {
+        Lane lane = lane(upstream);
+        long start = System.nanoTime();
+        Ticket ticket = new Ticket(start + maxQueueWaitNanos);
+        Ticket existing = key == null ? null : lane.pending.putIfAbsent(key, ticket);
+        if (existing != null) {
+            metrics.recordQueueWait(upstream, "joined", 0);
+            return (T) join(existing.result);
+        }
+
+        try {
+            enqueue(lane, ticket);
+            join(ticket.admitted);
+        } catch (RuntimeException e) {
+            forget(lane, key, ticket);
+            ticket.result.completeExceptionally(e);
+            throw e;
+        }
+        long dispatched = System.nanoTime();
+        metrics.recordQueueWait(upstream, "dispatched", dispatched - start);
+        boolean failed = true;
+        try {
+            T value = call.get();
+            failed = false;
+            ticket.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            ticket.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            forget(lane, key, ticket);
+            release(lane, System.nanoTime() - dispatched, failed);
+        }
+    }
+
+    public double concurrencyLimit(String upstream) {
+        Lane lane = lane(upstream);
+        synchronized (lane) {
+            return lane.limit;
+        }
+    }
+
+    public int queued(String upstream) {
+        Lane lane = lane(upstream);
+        synchronized (lane) {
+            return lane.queue.size();
+        }
+    }
+
+    // Whether the upstream has a lane of its own rather than the generic Lane defaults
+    public boolean hasLane(String upstream) {
+        return properties.hasLane(upstream);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pacer.shutdownNow();
+    }
+
+    private Lane lane(String upstream) {
+        return lanes.computeIfAbsent(upstream, name -> new Lane(name, properties.lane(name)));
+    }
+
+    private void enqueue(Lane lane, Ticket ticket) {
+        synchronized (lane) {
+            long now = System.nanoTime();
+            long wait = lane.estimatedWait(now);
+            if (lane.queue.size() >= lane.maxQueued || now + wait - ticket.deadline > 0) {
+                metrics.recordQueueWait(lane.name, "rejected", 0);
+                log.warn("Rejecting {} call, estimated queue wait {} ms with {} queued", lane.name,
+                        TimeUnit.NANOSECONDS.toMillis(wait), lane.queue.size());
+                throw busy(lane, wait);
+            }
+            lane.queue.add(ticket);
+            ticket.expiry = pacer.schedule(() -> expire(lane, ticket), ticket.deadline - now, TimeUnit.NANOSECONDS);
+        }
+        drain(lane);
+    }
+
+    // Admits queued calls while both a pacing slot and an in-flight slot are free; otherwise wakes up at the next slot
+    private void drain(Lane lane) {
+        List<Ticket> admitted = null;
+        synchronized (lane) {
+            long now = System.nanoTime();
+            while (!lane.queue.isEmpty() && lane.inFlight < (int) lane.limit) {
+                if (now - lane.nextSlot < 0) {
+                    if (!lane.wakeupScheduled) {
+                        lane.wakeupScheduled = true;
+                        pacer.schedule(() -> wakeUp(lane), lane.nextSlot - now, TimeUnit.NANOSECONDS);
+                    }
+                    break;
+                }
+                Ticket ticket = lane.queue.poll();
+                ticket.expiry.cancel(false);
+                lane.inFlight++;
+                lane.nextSlot = now + lane.intervalNanos;
+                if (admitted == null) {
+                    admitted = new ArrayList<>();
+                }
+                admitted.add(ticket);
+            }
+        }
+        // completed outside the lock, since blocked callers resume (and async calls start) right here
+        if (admitted != null) {
+            admitted.forEach(ticket -> ticket.admitted.complete(null));
+        }
+    }
+
+    private void wakeUp(Lane lane) {
+        synchronized (lane) {
+            lane.wakeupScheduled = false;
+        }
+        drain(lane);
+    }
+
+    private void expire(Lane lane, Ticket ticket) {
+        long wait;
+        synchronized (lane) {
+            if (!lane.queue.remove(ticket)) {
+                return;
+            }
+            wait = lane.estimatedWait(System.nanoTime());
+        }
+        metrics.recordQueueWait(lane.name, "rejected", maxQueueWaitNanos);
+        ticket.admitted.completeExceptionally(busy(lane, wait));
+    }
+
+    private void release(Lane lane, long latencyNanos, boolean failed) {
+        synchronized (lane) {
+            lane.inFlight--;
+            lane.latencyNanos = lane.latencyNanos == 0 ? latencyNanos : lane.latencyNanos + (latencyNanos - lane.latencyNanos) / 8;
+            long now = System.nanoTime();
+            if (failed || latencyNanos > lane.latencyTargetNanos) {
+                // at most one decrease per target period, so one bad episode hitting many in-flight calls halves the limit once
+                if (now - lane.lastDecrease >= lane.latencyTargetNanos) {
+                    lane.limit = Math.max(lane.minConcurrency, lane.limit / 2);
+                    lane.lastDecrease = now;
+                    log.info("Reduced {} concurrency limit to {} after a {} call", lane.name, (int) lane.limit, failed ? "failed" : "slow");
+                }
+            } else {
+                lane.limit = Math.min(lane.maxConcurrency, lane.limit + 1 / lane.limit);
+            }
+        }
+        drain(lane);
+    }
+
+    private static void forget(Lane lane, String key, Ticket ticket) {
+        if (key != null) {
+            lane.pending.remove(key, ticket);
+        }
+    }
+
+    private static RateLimitExceededException busy(Lane lane, long waitNanos) {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return new RateLimitExceededException(503, "The " + lane.name + " service is busy. Please try again later.", String.valueOf(seconds));
+    }
+
+    private static Object join(CompletableFuture<?> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    private static final class Ticket {
+        final long deadline;
+        final CompletableFuture<Void> admitted = new CompletableFuture<>();
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        // guarded by the lane
+        ScheduledFuture<?> expiry;
+
+        Ticket(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    // One upstream's queue and limits; every mutable field is guarded by the lane itself
+    private static final class Lane {
+        final String name;
+        final long intervalNanos;
+        final int maxQueued;
+        final int minConcurrency;
+        final int maxConcurrency;
+        final long latencyTargetNanos;
+        final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+        final Map<String, Ticket> pending = new ConcurrentHashMap<>();
+        double limit;
+        int inFlight;
+        long nextSlot;
+        long lastDecrease;
+        long latencyNanos;
+        boolean wakeupScheduled;
+
+        Lane(String name, UpstreamPacingProperties.Lane config) {
+            this.name = name;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRatePerSecond());
+            this.maxQueued = config.getMaxQueued();
+            this.minConcurrency = Math.max(1, config.getMinConcurrency());
+            this.maxConcurrency = Math.max(minConcurrency, config.getMaxConcurrency());
+            this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(config.getLatencyTargetMillis());
+            this.limit = Math.min(maxConcurrency, Math.max(minConcurrency, config.getInitialConcurrency()));
+            long now = System.nanoTime();
+            this.nextSlot = now;
+            this.lastDecrease = now - latencyTargetNanos;
+        }
+
+        // Until the next pacing slot plus one interval per call ahead, or, with every in-flight slot taken, the
+        // time the current limit needs to work through the queue at the recent latency; whichever is longer
+        long estimatedWait(long now) {
+            long pacing = Math.max(0, nextSlot - now) + queue.size() * intervalNanos;
+            int slots = (int) limit;
+            long concurrency = inFlight + queue.size() < slots ? 0 : (queue.size() + 1) * latencyNanos / slots;
+            return Math.max(pacing, concurrency);
+        }
+    }
+}
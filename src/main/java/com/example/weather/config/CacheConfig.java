@@ -1,35 +1,134 @@
 package com.example.weather.config;
 
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.cache.WeatherResponseWeigher;
+import com.example.weather.model.request.Coordinates;
 import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCache;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.cache.support.SimpleCacheManager;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class CacheConfig {
 
     @Bean
-   public Caffeine<Object, Object> caffieneConfig(WeatherCacheProperties properties) {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(properties.getExpireAfterWriteMinutes(), TimeUnit.MINUTES) // remove hardcoded value
-                .maximumSize(properties.getMaximumSize());
+   public Caffeine<String, WeatherResponse> caffieneConfig(WeatherCacheProperties properties) {
+        // variable expiry, so an entry restored from the disk tier keeps the lifetime it had left (see WeatherDiskCache)
+        Caffeine<String, WeatherResponse> caffeine = Caffeine.newBuilder()
+                .expireAfter(expireAfterWrite(Duration.ofMinutes(properties.getExpireAfterWriteMinutes())))
+                .maximumWeight(properties.getMaximumWeightMegabytes() * 1024L * 1024L)
+                .weigher(new WeatherResponseWeigher())
+                .recordStats();
+        if (properties.getRefreshAfterWriteMinutes() > 0) {
+            caffeine.refreshAfterWrite(properties.getRefreshAfterWriteMinutes(), TimeUnit.MINUTES);
+        }
+        return caffeine;
 
     }
 
 
+    // Async so that concurrent misses for the same key share one in-flight future.
+    // The loader is only used for refresh-ahead reloads; misses are loaded by the requesting thread.
     @Bean(name = "weatherCaffeineCache")
-    public Cache<String, WeatherResponse> weatherCaffeineCache(Caffeine<Object, Object> caffeine) {
-        return caffeine.build();
+    public AsyncLoadingCache<String, WeatherResponse> weatherCaffeineCache(
+            Caffeine<String, WeatherResponse> caffeine, ObjectProvider<AsyncCacheLoader<String, WeatherResponse>> weatherLoader) {
+        return caffeine.buildAsync(new AsyncCacheLoader<String, WeatherResponse>() {
+            @Override
+            public CompletableFuture<? extends WeatherResponse> asyncLoad(String key, Executor executor) throws Exception {
+                return weatherLoader.getObject().asyncLoad(key, executor);
+            }
+
+            @Override
+            public CompletableFuture<? extends WeatherResponse> asyncReload(String key, WeatherResponse oldValue, Executor executor) throws Exception {
+                return weatherLoader.getObject().asyncReload(key, oldValue, executor);
+            }
+        });
     }
 
+    // Blocking view over the same entries, for callers that don't need single-flight loads
+    @Bean(name = "weatherSyncCache")
+    public Cache<String, WeatherResponse> weatherSyncCache(
+            @Qualifier("weatherCaffeineCache") AsyncCache<String, WeatherResponse> weatherCaffeineCache) {
+        return weatherCaffeineCache.synchronous();
+    }
+
+    // Variable expiry so entries restored from disk keep their original write time
+    @Bean(name = "geocodingCaffeineCache")
+    public Cache<String, Coordinates> geocodingCaffeineCache(GeocodingCacheProperties properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .<String, Coordinates>expireAfter(expireAfterWrite(Duration.ofDays(properties.getExpireAfterWriteDays())))
+                .build();
+    }
+
+    // Forecasts keyed by lat/lon grid cell, shared by every zip code that falls in the cell
+    @Bean(name = "weatherGridCaffeineCache")
+    public AsyncCache<Long, WeatherResponse> weatherGridCaffeineCache(WeatherGridProperties properties) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(properties.getExpireAfterWriteMinutes(), TimeUnit.MINUTES)
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .buildAsync();
+    }
 
-}
\ No newline at end of file
+    // Lookups known to have no answer, each reason with its own TTL; bounded apart from the weather cache
+    @Bean(name = "negativeWeatherCaffeineCache")
+    public Cache<String, NegativeWeatherCache.Reason> negativeWeatherCaffeineCache(NegativeCacheProperties properties) {
+        long notFoundNanos = TimeUnit.SECONDS.toNanos(properties.getNotFoundTtlSeconds());
+        long failureNanos = TimeUnit.SECONDS.toNanos(properties.getFailureTtlSeconds());
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .expireAfter(new Expiry<String, NegativeWeatherCache.Reason>() {
+                    @Override
+                    public long expireAfterCreate(String key, NegativeWeatherCache.Reason reason, long currentTime) {
+                        return reason == NegativeWeatherCache.Reason.NOT_FOUND ? notFoundNanos : failureNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, NegativeWeatherCache.Reason reason, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, reason, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, NegativeWeatherCache.Reason reason, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Same lifetime as expireAfterWrite, but exposed through policy().expireVariably() so single entries can be shortened
+    public static Expiry<Object, Object> expireAfterWrite(Duration ttl) {
+        long ttlNanos = ttl.toNanos();
+        return new Expiry<Object, Object>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
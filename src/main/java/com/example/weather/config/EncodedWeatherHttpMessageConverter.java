@@ -0,0 +1,45 @@
+package com.example.weather.config;
+
+import com.example.weather.model.response.EncodedWeather;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes a pre-encoded weather response as {@code application/json} by copying its bytes to the response stream.
+ */
+public class EncodedWeatherHttpMessageConverter extends AbstractHttpMessageConverter<EncodedWeather> {
+
+    public EncodedWeatherHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return EncodedWeather.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected EncodedWeather readInternal(Class<? extends EncodedWeather> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Encoded weather responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(EncodedWeather encoded, MediaType contentType) {
+        return encoded.contentLength();
+    }
+
+    @Override
+    protected void writeInternal(EncodedWeather encoded, HttpOutputMessage outputMessage) throws IOException {
+        encoded.writeTo(outputMessage.getBody());
+    }
+}
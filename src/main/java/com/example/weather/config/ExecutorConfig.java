@@ -0,0 +1,41 @@
+package com.example.weather.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    // Runs blocking upstream calls that are fanned out off the request thread, e.g. batch geocoding
+    @Bean(name = "upstreamExecutor", destroyMethod = "shutdown")
+    public ExecutorService upstreamExecutor(@Value("${upstream.executor.max-threads:16}") int maxThreads,
+                                            Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // a new virtual thread per task; upstream concurrency is capped per host by PerHostRequestLimiter instead
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    new VirtualThreadTaskExecutor("upstream-").getVirtualThreadFactory());
+        }
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled is set but virtual threads need Java 21, running on Java {}; using platform threads",
+                    Runtime.version().feature());
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("upstream-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
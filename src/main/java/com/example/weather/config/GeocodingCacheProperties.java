@@ -0,0 +1,17 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache.geocoding")
+public class GeocodingCacheProperties {
+    private int expireAfterWriteDays;
+    private int maximumSize;
+    // empty keeps the cache in memory only
+    private String storePath;
+}
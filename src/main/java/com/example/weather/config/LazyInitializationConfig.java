@@ -0,0 +1,22 @@
+package com.example.weather.config;
+
+import com.example.weather.controller.WeatherController;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code spring.main.lazy-initialization=true} (the faststart profile), beans are created on first use. The
+ * weather endpoint stays eager, and with it the service, its caches and the disk tier and offline index they restore
+ * at startup, so the first weather request doesn't pay for them. Login, cache stats, the peer endpoint and actuator
+ * are created when they are first called.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    // Static, since it is looked up while bean factory post-processors run
+    @Bean
+    public static LazyInitializationExcludeFilter weatherRequestPathEager() {
+        return LazyInitializationExcludeFilter.forBeanTypes(WeatherController.class);
+    }
+}
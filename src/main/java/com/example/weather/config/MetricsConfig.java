@@ -0,0 +1,74 @@
+package com.example.weather.config;
+
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.cache.WeatherDiskCache;
+import com.example.weather.clients.RoutingWeatherClient;
+import com.example.weather.clients.UpstreamScheduler;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.quota.SubjectQuotaTable;
+import com.example.weather.stream.WeatherUpdateHub;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Publishes the recordStats() counters of each cache layer as cache_gets_total{cache=...,result=hit|miss} etc.
+    @Bean
+    public MeterBinder caffeineCacheMetrics(@Qualifier("weatherCaffeineCache") AsyncCache<String, WeatherResponse> weatherCache,
+                                            @Qualifier("geocodingCaffeineCache") Cache<String, Coordinates> geocodingCache,
+                                            @Qualifier("weatherGridCaffeineCache") AsyncCache<Long, WeatherResponse> gridCache,
+                                            @Qualifier("negativeWeatherCaffeineCache") Cache<String, NegativeWeatherCache.Reason> negativeCache,
+                                            WeatherDiskCache weatherDiskCache,
+                                            SubjectQuotaTable subjectQuotaTable,
+                                            UpstreamScheduler upstreamScheduler,
+                                            WeatherUpdateHub weatherUpdateHub,
+                                            RoutingWeatherClient routingWeatherClient) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, weatherCache, "weather");
+            CaffeineCacheMetrics.monitor(registry, geocodingCache, "geocoding");
+            CaffeineCacheMetrics.monitor(registry, gridCache, "grid");
+            CaffeineCacheMetrics.monitor(registry, negativeCache, "negative");
+            Gauge.builder("weather.disk.cache.size", weatherDiskCache, WeatherDiskCache::size)
+                    .description("Live entries in the weather disk cache")
+                    .register(registry);
+            Gauge.builder("weather.quota.subjects", subjectQuotaTable, SubjectQuotaTable::size)
+                    .description("Callers currently holding a request-quota bucket")
+                    .register(registry);
+            Gauge.builder("weather.stream.subscribers", weatherUpdateHub, WeatherUpdateHub::subscribers)
+                    .description("Open Server-Sent Events weather streams")
+                    .register(registry);
+            Gauge.builder("weather.stream.topics", weatherUpdateHub, WeatherUpdateHub::topics)
+                    .description("Zip codes with at least one open weather stream")
+                    .register(registry);
+            for (String provider : routingWeatherClient.providerNames()) {
+                Gauge.builder("weather.routing.latency", routingWeatherClient, router -> router.latencyMillis(provider))
+                        .description("Moving average of the forecast provider's latency, in milliseconds")
+                        .tag("provider", provider)
+                        .register(registry);
+                Gauge.builder("weather.routing.error.rate", routingWeatherClient, router -> router.errorRate(provider))
+                        .description("Moving average of the forecast provider's share of failed calls")
+                        .tag("provider", provider)
+                        .register(registry);
+            }
+            for (String upstream : new String[]{WeatherMetrics.NOMINATIM, WeatherMetrics.OPEN_METEO}) {
+                Gauge.builder("weather.upstream.concurrency.limit", upstreamScheduler, scheduler -> scheduler.concurrencyLimit(upstream))
+                        .description("Adaptive limit on concurrent calls to the upstream")
+                        .tag("upstream", upstream)
+                        .register(registry);
+                Gauge.builder("weather.upstream.queue.depth", upstreamScheduler, scheduler -> scheduler.queued(upstream))
+                        .description("Calls waiting for a pacing or concurrency slot")
+                        .tag("upstream", upstream)
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache.negative")
+public class NegativeCacheProperties {
+    private boolean enabled = true;
+    // zip codes Nominatim has no place for; they rarely start existing, but a typo shouldn't stick for long either
+    private int notFoundTtlSeconds = 600;
+    // lookups that failed upstream, answered with 503 meanwhile instead of retrying on every request
+    private int failureTtlSeconds = 15;
+    // a bound of its own, so junk keys only ever evict other junk keys
+    private int maximumSize = 10_000;
+}
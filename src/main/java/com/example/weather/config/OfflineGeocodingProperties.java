@@ -0,0 +1,19 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "geo.offline")
+public class OfflineGeocodingProperties {
+    // GeoNames postal-code dump (e.g. allCountries.txt); empty disables offline geocoding
+    private String datasetPath;
+    // 16 bytes of heap per postal code once loaded
+    private int maxEntries = 2_000_000;
+    // loading stops here and keeps what it has; the rest fall back to Nominatim
+    private int maxLoadSeconds = 30;
+}
@@ -0,0 +1,29 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache.peers")
+public class PeerCacheProperties {
+    private boolean enabled;
+    // this replica's base URL exactly as it appears in members
+    private String self = "";
+    // base URLs of every replica, this one included; must be the same list, in any order, on every replica
+    private List<String> members = new ArrayList<>();
+    // points per member on the hash ring; more spreads keys more evenly
+    private int virtualNodes = 160;
+    // keys owned by another replica are kept locally this long (or less, if the forecast expires sooner)
+    private int hotTtlSeconds = 60;
+    // a slower or unreachable owner is skipped and the key is fetched upstream locally
+    private int timeoutMillis = 1000;
+    // shared by all replicas and sent with every peer request; peer requests without it are refused
+    private String secret = "";
+}
@@ -0,0 +1,50 @@
+package com.example.weather.config;
+
+import com.example.weather.model.response.ProjectedWeather;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@code fields=} projection of a weather response as {@code application/json}, streaming the requested
+ * fields through the application ObjectMapper's generator settings.
+ */
+public class ProjectedWeatherHttpMessageConverter extends AbstractHttpMessageConverter<ProjectedWeather> {
+
+    private final JsonFactory jsonFactory;
+
+    public ProjectedWeatherHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ProjectedWeather.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ProjectedWeather readInternal(Class<? extends ProjectedWeather> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Projected weather responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(ProjectedWeather projected, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            projected.writeTo(json);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "quota")
+public class QuotaProperties {
+    private boolean enabled = true;
+    // sustained rate per authenticated subject
+    private int requestsPerSecond = 10;
+    // requests a subject can make back to back after being idle
+    private int burst = 20;
+    // a bucket that has been full this long is dropped
+    private int idleEvictSeconds = 300;
+    private int stripes = 64;
+}
@@ -0,0 +1,56 @@
+package com.example.weather.config;
+
+import com.example.weather.clients.PerHostRequestLimiter;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * One pooled, keep-alive HTTP client shared by every upstream call (Open-Meteo and Nominatim).
+ */
+@Configuration
+public class UpstreamHttpConfig {
+
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Bean
+    public HttpClient upstreamHttpClient(UpstreamHttpProperties properties, Environment environment) {
+        // The JDK pool reads its idle timeout from a system property when the first client is created
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(properties.getKeepAliveSeconds()));
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(properties.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // the default is a cached pool of platform threads for the client's async work
+            builder.executor(new VirtualThreadTaskExecutor("upstream-http-"));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public PerHostRequestLimiter perHostRequestLimiter(UpstreamHttpProperties properties) {
+        // whatever is left of the total deadline after the read timeout is the most we queue for a connection
+        long maxWait = Math.max(0, properties.getTotalTimeoutMillis() - properties.getReadTimeoutMillis());
+        return new PerHostRequestLimiter(properties.getMaxConnectionsPerHost(), maxWait);
+    }
+
+    @Bean
+    public RestTemplate upstreamRestTemplate(HttpClient upstreamHttpClient, PerHostRequestLimiter perHostRequestLimiter,
+                                             UpstreamHttpProperties properties) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(upstreamHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(properties.getReadTimeoutMillis()));
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(perHostRequestLimiter);
+        return restTemplate;
+    }
+}
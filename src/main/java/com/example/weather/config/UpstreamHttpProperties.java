@@ -0,0 +1,22 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "upstream.http")
+public class UpstreamHttpProperties {
+    private int connectTimeoutMillis = 2000;
+    // time allowed for the response headers once the request is sent
+    private int readTimeoutMillis = 5000;
+    // end-to-end deadline for a call, including waiting for a free connection
+    private int totalTimeoutMillis = 8000;
+    private int maxConnectionsPerHost = 32;
+    // how long an idle pooled connection is kept open
+    private int keepAliveSeconds = 30;
+    private boolean http2Enabled = true;
+}
@@ -0,0 +1,71 @@
+package com.example.weather.config;
+
+import com.example.weather.metrics.WeatherMetrics;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties(prefix = "upstream.pacing")
+public class UpstreamPacingProperties {
+    // longest a caller waits in the queue; calls estimated to wait longer are rejected up front
+    @Positive
+    private int maxQueueWaitMillis = 3000;
+    // per upstream, keyed by name; nominatim and open-meteo have built-in lanes, and a lane configured here replaces
+    // the built-in one whole. Upstreams without an entry get the Lane defaults
+    private Map<String, @Valid Lane> lanes = defaultLanes();
+
+    public Lane lane(String upstream) {
+        return lanes.getOrDefault(upstream, new Lane());
+    }
+
+    public boolean hasLane(String upstream) {
+        return lanes.containsKey(upstream);
+    }
+
+    // Nominatim's usage policy allows one request a second; Open-Meteo is far more generous
+    private static Map<String, Lane> defaultLanes() {
+        Map<String, Lane> lanes = new HashMap<>();
+        Lane nominatim = new Lane();
+        nominatim.setRatePerSecond(1);
+        nominatim.setMaxQueued(50);
+        nominatim.setInitialConcurrency(1);
+        nominatim.setMaxConcurrency(2);
+        nominatim.setLatencyTargetMillis(2000);
+        lanes.put(WeatherMetrics.NOMINATIM, nominatim);
+        Lane openMeteo = new Lane();
+        openMeteo.setMaxQueued(200);
+        lanes.put(WeatherMetrics.OPEN_METEO, openMeteo);
+        return lanes;
+    }
+
+    @Getter
+    @Setter
+    public static class Lane {
+        // dispatches per second, evenly spaced
+        @Positive
+        private double ratePerSecond = 10;
+        @Positive
+        private int maxQueued = 100;
+        // the in-flight limit starts here and adapts between min and max
+        @Positive
+        private int initialConcurrency = 4;
+        @Positive
+        private int minConcurrency = 1;
+        @Positive
+        private int maxConcurrency = 16;
+        // calls slower than this, like failed calls, halve the in-flight limit
+        @Positive
+        private int latencyTargetMillis = 1000;
+    }
+}
@@ -11,5 +11,12 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "cache.weather")
 public class WeatherCacheProperties {
     private int expireAfterWriteMinutes;
-    private int maximumSize;
+    // heap budget for cached forecasts, measured with WeatherResponseWeigher rather than counted in entries
+    private int maximumWeightMegabytes = 8;
+    // 0 disables refresh-ahead; otherwise reads older than this return the cached value and reload it in the background
+    private int refreshAfterWriteMinutes;
+    // empty keeps the cache in memory only; otherwise entries are also written to this memory-mapped file
+    private String storePath;
+    // the store file is pre-sized to this and never grows past it
+    private int storeMaxMegabytes = 64;
 }
@@ -0,0 +1,18 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache.grid")
+public class WeatherGridProperties {
+    private boolean enabled;
+    // cell size in degrees; 0.05 is roughly 5.5 km north-south
+    private double stepDegrees;
+    private int expireAfterWriteMinutes;
+    private int maximumSize;
+}
@@ -0,0 +1,40 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "weather.routing")
+public class WeatherRoutingProperties {
+    // forecast endpoints speaking the Open-Meteo API, in order of preference until their latencies are known; empty
+    // routes everything to weather.api.url
+    private List<Provider> providers = new ArrayList<>();
+    // weight of the newest call in each provider's latency and error-rate averages
+    private double ewmaWeight = 0.2;
+    // a provider failing more often than this only gets one probe call per probe interval
+    private double maxErrorRate = 0.5;
+    private int probeIntervalMillis = 5000;
+    private boolean hedgingEnabled = true;
+    // the next provider is asked once the first has taken longer than its recent p95, but never sooner than this
+    private int hedgeMinDelayMillis = 100;
+    // hedged calls as a share of routed calls, so a slow spell can't double the upstream load
+    private int hedgeBudgetPercent = 10;
+    // recent successful calls per provider that the p95 is taken over
+    private int latencyWindow = 128;
+
+    @Getter
+    @Setter
+    public static class Provider {
+        // also the upstream.pacing lane the provider is paced on, so "open-meteo" keeps its existing lane
+        private String name;
+        // blank leaves the provider out
+        private String url;
+    }
+}
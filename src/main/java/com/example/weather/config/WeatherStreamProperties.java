@@ -0,0 +1,25 @@
+package com.example.weather.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "weather.stream")
+public class WeatherStreamProperties {
+    // a stream is closed after this long and the client reconnects (EventSource does so on its own)
+    private int timeoutMinutes = 30;
+    // reconnect delay suggested to clients in the retry field
+    private int reconnectMillis = 5000;
+    // keep-alive comment to every subscriber, which also keeps subscribed keys refreshing and drops dead connections
+    private int heartbeatSeconds = 20;
+    // open streams across all keys; further subscriptions get 503
+    private int maxSubscribers = 50000;
+    // most subscribers written to at once; each has at most one write in flight, so a stalled client holds one thread
+    private int sendThreads = 64;
+    // a subscriber whose write has been blocked this long is dropped the next time an update or heartbeat is offered
+    private int sendTimeoutMillis = 10000;
+}
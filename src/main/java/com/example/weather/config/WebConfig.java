@@ -1,10 +1,14 @@
 package com.example.weather.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig {
 
@@ -20,4 +24,16 @@ public class WebConfig {
             }
         };
     }
+
+    // Ahead of Jackson, so cache hits are written from their stored bytes and fields= projections field by field
+    @Bean
+    public WebMvcConfigurer encodedWeatherConverter(ObjectMapper objectMapper) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.add(0, new EncodedWeatherHttpMessageConverter());
+                converters.add(1, new ProjectedWeatherHttpMessageConverter(objectMapper));
+            }
+        };
+    }
 }
@@ -1,27 +1,51 @@
 package com.example.weather.config;
 
+import com.example.weather.cache.PeerWeatherCache;
 import com.example.weather.filter.JwtAuthenticationFilter;
+import com.example.weather.filter.SubjectQuotaFilter;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.quota.SubjectQuotaTable;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity
 public class securityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, QuotaProperties quotaProperties, SubjectQuotaTable subjectQuotaTable,
+                                           @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+                                           WeatherMetrics metrics) throws Exception {
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/login").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // replicas authenticate to each other with the shared peer secret, checked by the controller
+                        .requestMatchers(PeerWeatherCache.PATH).permitAll()
                         .requestMatchers("/api/v1/weather").authenticated()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(new JwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
 
+        // Built here rather than as a @Component so the servlet container doesn't register it a second time
+        if (quotaProperties.isEnabled()) {
+            http.addFilterAfter(new SubjectQuotaFilter(subjectQuotaTable, exceptionResolver, metrics), JwtAuthenticationFilter.class);
+        }
+
         return http.build();
     }
+
+    @Bean
+    public SubjectQuotaTable subjectQuotaTable(QuotaProperties properties) {
+        return new SubjectQuotaTable(properties.getRequestsPerSecond(), properties.getBurst(),
+                Duration.ofSeconds(properties.getIdleEvictSeconds()), properties.getStripes());
+    }
 }
@@ -0,0 +1,56 @@
+package com.example.weather.controller;
+
+import com.example.weather.cache.GeocodingCache;
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.cache.WeatherGridCache;
+import com.example.weather.config.ApiPaths;
+import com.example.weather.model.response.CacheLayerStats;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping(ApiPaths.V1_VERSION + "/cache")
+public class CacheStatsController {
+
+    @Autowired
+    @Qualifier("weatherCaffeineCache")
+    private AsyncCache<String, WeatherResponse> weatherCache;
+
+    @Autowired
+    private GeocodingCache geocodingCache;
+
+    @Autowired
+    private WeatherGridCache weatherGridCache;
+
+    @Autowired
+    private NegativeWeatherCache negativeWeatherCache;
+
+    // Hit/miss counts per cache layer, from the zip-level entry down to the grid cell
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, CacheLayerStats>> cacheStats() {
+        Map<String, CacheLayerStats> layers = new LinkedHashMap<>();
+        layers.put("weather", toLayerStats(weatherCache.synchronous().stats(), weatherCache.synchronous().estimatedSize()));
+        layers.put("geocoding", toLayerStats(geocodingCache.stats(), geocodingCache.estimatedSize()));
+        if (weatherGridCache.isEnabled()) {
+            layers.put("grid", toLayerStats(weatherGridCache.stats(), weatherGridCache.estimatedSize()));
+        }
+        if (negativeWeatherCache.isEnabled()) {
+            layers.put("negative", toLayerStats(negativeWeatherCache.stats(), negativeWeatherCache.estimatedSize()));
+        }
+        return ResponseEntity.ok(layers);
+    }
+
+    private static CacheLayerStats toLayerStats(CacheStats stats, long estimatedSize) {
+        return new CacheLayerStats(stats.hitCount(), stats.missCount(), stats.hitRate(), estimatedSize);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.weather.controller;
+
+import com.example.weather.cache.PeerWeatherCache;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.service.WeatherService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The owner side of the shared weather cache: other replicas ask here for keys this one owns. Authenticated by the
+ * shared peer secret rather than a user token, so peer traffic is not counted against anyone's quota.
+ */
+@Slf4j
+@RestController
+public class PeerCacheController {
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private PeerWeatherCache peerWeatherCache;
+
+    @GetMapping(path = PeerWeatherCache.PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> fetchWeatherForPeer(@ModelAttribute @Valid WeatherRequest request,
+                                                      @RequestHeader(value = PeerWeatherCache.SECRET_HEADER, required = false) String secret) {
+        if (!peerWeatherCache.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!peerWeatherCache.isTrustedPeer(secret)) {
+            log.warn("Refused a peer cache request without the peer secret for zip code: {}", request.getZipCode());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        WeatherResponse response = weatherService.getWeatherForPeer(request);
+        if (response == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        String key = WeatherService.buildCacheKey(request.getZipCode(), request.getCountrycodes());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(PeerWeatherCache.toRecord(key, response));
+    }
+}
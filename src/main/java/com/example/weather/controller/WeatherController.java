@@ -1,15 +1,30 @@
 package com.example.weather.controller;
 
 import com.example.weather.config.ApiPaths;
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.model.request.BatchWeatherRequest;
 import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.BatchWeatherResponse;
+import com.example.weather.model.response.ErrorResponse;
+import com.example.weather.model.response.ProjectedWeather;
 import com.example.weather.model.response.WeatherResponse;
 import com.example.weather.service.WeatherService;
+import com.example.weather.stream.WeatherUpdateHub;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -19,17 +34,64 @@ public class WeatherController {
     @Autowired
     private WeatherService weatherService;
 
+    @Autowired
+    private WeatherCacheProperties weatherCacheProperties;
+
+    @Autowired
+    private WeatherUpdateHub weatherUpdateHub;
 
+    // fields=currentTemp,fromCache limits the body to those properties; without it the full response is sent
     @GetMapping
-    public ResponseEntity<WeatherResponse> fetchWeather(@ModelAttribute @Valid WeatherRequest request) {
-        log.info("Received request to fetch weather for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
+    public ResponseEntity<?> fetchWeather(@ModelAttribute @Valid WeatherRequest request,
+                                          @RequestParam(required = false) String fields,
+                                          HttpServletRequest servletRequest) {
+        log.debug("Received request to fetch weather for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
+        Set<ProjectedWeather.Field> projection = null;
+        if (fields != null) {
+            try {
+                projection = ProjectedWeather.parseFields(fields);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(),
+                        "Invalid fields", e.getMessage(), servletRequest.getRequestURI()));
+            }
+        }
         WeatherResponse response = weatherService.getWeather(request);
 
         if (response == null) {
             log.warn("Weather data not found for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        log.info("Returning weather data for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
-        return ResponseEntity.ok(response);
+        log.debug("Returning weather data for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
+        // Spring answers a matching If-None-Match / If-Modified-Since with 304 from these headers, before the body is serialized
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(response.etag());
+        if (response.getFetchedAtMillis() > 0) {
+            long expiresAt = response.getFetchedAtMillis() + Duration.ofMinutes(weatherCacheProperties.getExpireAfterWriteMinutes()).toMillis();
+            long maxAgeSeconds = Math.max(0, TimeUnit.MILLISECONDS.toSeconds(expiresAt - System.currentTimeMillis()));
+            ok.lastModified(response.getFetchedAtMillis()).cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS));
+        }
+        if (projection != null) {
+            return ok.body(new ProjectedWeather(response, projection));
+        }
+        // pre-encoded when it came through the weather cache, so it is written as stored bytes rather than serialized
+        return ok.body(response.getEncoded() != null ? response.getEncoded() : response);
+    }
+
+    // Server-Sent Events: the current weather first, then again each time the cached entry for the zip code is refreshed
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamWeather(@ModelAttribute @Valid WeatherRequest request) {
+        log.debug("Received stream subscription for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
+        WeatherResponse current = weatherService.getWeather(request);
+
+        if (current == null) {
+            log.warn("Weather data not found for zip code: {} and country code: {}", request.getZipCode(), request.getCountrycodes());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(weatherUpdateHub.subscribe(request, current));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchWeatherResponse> fetchWeatherBatch(@RequestBody @Valid BatchWeatherRequest request) {
+        log.info("Received batch request for {} locations", request.getLocations().size());
+        return ResponseEntity.ok(new BatchWeatherResponse(weatherService.getWeatherBatch(request.getLocations())));
     }
 }
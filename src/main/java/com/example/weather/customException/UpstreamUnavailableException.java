@@ -0,0 +1,19 @@
+package com.example.weather.customException;
+
+/**
+ * The upstream call for a location failed, now or within the negative cache's failure TTL, so its weather can't be
+ * answered for the moment. Answered with 503 and Retry-After, unlike a location that doesn't exist (404).
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public UpstreamUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.weather.exceptionHandler;
 
 import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.customException.UpstreamUnavailableException;
 import com.example.weather.model.response.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -16,22 +18,42 @@ import java.time.LocalDateTime;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(RateLimitExceededException.class)
-    public ResponseEntity<Object> handleRateLimitExceeded(RateLimitExceededException ex) {
+    public ResponseEntity<Object> handleRateLimitExceeded(RateLimitExceededException ex, HttpServletRequest request) {
         // Construct the response body with the details of the exception
         ErrorResponse errorResponse = new ErrorResponse(
                 LocalDateTime.now(),
                 ex.getStatusCode(),
                 "Exceeded the rate limit",
                 ex.getMessage(),
-                ex.getRetryAfter()
+                request.getRequestURI()
         );
 
+        // Retry-After carries the seconds until the limit allows another request
+        HttpHeaders headers = new HttpHeaders();
+        if (ex.getRetryAfter() != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, ex.getRetryAfter());
+        }
+
         // Return the custom error response with the appropriate HTTP status
-        return new ResponseEntity<>(errorResponse, HttpStatus.valueOf(ex.getStatusCode()));
+        return new ResponseEntity<>(errorResponse, headers, HttpStatus.valueOf(ex.getStatusCode()));
 
     }
 
 
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleUpstreamUnavailable(UpstreamUnavailableException ex, HttpServletRequest request) {
+        ErrorResponse error = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Upstream Unavailable",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return new ResponseEntity<>(error, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(ResourceAccessException.class)
     public ResponseEntity<ErrorResponse> handleResourceAccess(ResourceAccessException ex, HttpServletRequest request) {
         ErrorResponse error = new ErrorResponse(
@@ -13,6 +13,8 @@ import java.util.Collections;
 
 public class JwtAuthenticationFilter implements Filter {
 
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -27,7 +29,7 @@ public class JwtAuthenticationFilter implements Filter {
             if (username != null) {
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(username, null, Collections.emptyList());
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
+                auth.setDetails(detailsSource.buildDetails(req));
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
         }
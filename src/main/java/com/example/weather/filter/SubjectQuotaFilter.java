@@ -0,0 +1,57 @@
+package com.example.weather.filter;
+
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.quota.SubjectQuotaTable;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-caller request quota, keyed by the subject {@link JwtAuthenticationFilter} put in the security context.
+ * Requests without an authenticated subject pass through untouched; security rejects those that need one.
+ * Over-quota requests are handed to the MVC exception resolvers, so {@code GlobalExceptionHandler} writes the 429.
+ */
+@Slf4j
+public class SubjectQuotaFilter implements Filter {
+
+    private final SubjectQuotaTable quotas;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final WeatherMetrics metrics;
+
+    public SubjectQuotaFilter(SubjectQuotaTable quotas, HandlerExceptionResolver exceptionResolver, WeatherMetrics metrics) {
+        this.quotas = quotas;
+        this.exceptionResolver = exceptionResolver;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        // only the original dispatch counts; the async dispatch that closes a stream is the same request
+        if (request.getDispatcherType() == DispatcherType.REQUEST && auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            long waitNanos = quotas.tryAcquire(auth.getName());
+            if (waitNanos > 0) {
+                // Retry-After is whole seconds, so round up rather than invite a retry that is still too early
+                long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+                log.debug("Request quota exceeded for subject: {}", auth.getName());
+                metrics.quotaRejected();
+                exceptionResolver.resolveException((HttpServletRequest) request, (HttpServletResponse) response, null,
+                        new RateLimitExceededException(429, "Request quota exceeded. Please slow down.", String.valueOf(retryAfterSeconds)));
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+}
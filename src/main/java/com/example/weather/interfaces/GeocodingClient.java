@@ -6,5 +6,6 @@ import org.springframework.stereotype.Service;
 
 @Service
 public interface GeocodingClient {
+    // null when the location is unknown; a lookup that fails throws
     Coordinates getCoordinates(String zipCode, String countrycodes);
 }
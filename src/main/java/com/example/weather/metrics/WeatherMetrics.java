@@ -0,0 +1,118 @@
+package com.example.weather.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Request, upstream and upstream-queue meters. Everything on the per-request path is a pre-registered
+ * {@link Timer}, so recording costs a clock read and a few atomic adds, not a registry lookup or a log line.
+ */
+@Component
+public class WeatherMetrics {
+
+    public static final String NOMINATIM = "nominatim";
+    public static final String OPEN_METEO = "open-meteo";
+
+    public enum CacheResult {
+        HIT,   // served from the in-memory cache
+        DISK,  // in-memory miss served from the disk cache
+        MISS,  // fetched upstream
+        ERROR
+    }
+
+    private final MeterRegistry registry;
+    private final Map<CacheResult, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Counter quotaRejections;
+
+    public WeatherMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (CacheResult result : CacheResult.values()) {
+            requestTimers.put(result, Timer.builder("weather.requests")
+                    .description("End-to-end GET /api/v1/weather handling in the service")
+                    .tag("cache", result.name().toLowerCase(Locale.ROOT))
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.quotaRejections = Counter.builder("weather.quota.rejected")
+                .description("Requests turned away because the caller was over its quota")
+                .register(registry);
+    }
+
+    public Timer.Sample startRequest() {
+        return Timer.start(registry);
+    }
+
+    public void stopRequest(Timer.Sample sample, CacheResult result) {
+        sample.stop(requestTimers.get(result));
+    }
+
+    public <T> T timeUpstream(String upstream, Supplier<T> call) {
+        long start = registry.config().clock().monotonicTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            upstreamTimer(upstream, failed).record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Time a call spent queued in front of an upstream. Outcome is dispatched, joined (shared an identical call
+     * already queued or in flight) or rejected (estimated wait longer than the caller's deadline).
+     */
+    public void recordQueueWait(String upstream, String outcome, long nanos) {
+        Timer.builder("weather.upstream.queue.wait")
+                .description("Time upstream calls spend queued for a pacing and concurrency slot")
+                .tag("upstream", upstream)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void quotaRejected() {
+        quotaRejections.increment();
+    }
+
+    /**
+     * A request to the replica that owns a key. Outcome is hit, not_found, busy (the owner is out of upstream
+     * capacity) or error (the key is loaded locally instead).
+     */
+    public void peerFetch(String outcome) {
+        Counter.builder("weather.peer.fetches")
+                .description("Weather cache misses answered by the replica that owns the key")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    // A forecast call that was also sent to a second provider; won when the second provider answered first
+    public void forecastHedge(boolean won) {
+        Counter.builder("weather.routing.hedges")
+                .description("Forecast calls hedged to a second provider because the first was slow")
+                .tag("outcome", won ? "won" : "lost")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer upstreamTimer(String upstream, boolean failed) {
+        return Timer.builder("weather.upstream.requests")
+                .description("Calls to the geocoding and forecast APIs")
+                .tag("upstream", upstream)
+                .tag("outcome", failed ? "error" : "success")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.weather.model.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchWeatherRequest {
+
+    public static final int MAX_LOCATIONS = 200;
+
+    @NotEmpty(message = "At least one location is required")
+    @Size(max = MAX_LOCATIONS, message = "At most " + MAX_LOCATIONS + " locations per batch")
+    private List<@Valid WeatherRequest> locations;
+
+}
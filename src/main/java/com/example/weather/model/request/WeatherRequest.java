@@ -20,7 +20,11 @@ public class WeatherRequest {
     )
     private String zipCode;
 
-    // Optional country code,  validation needed
+    // Optional, one or more two-letter codes separated by commas, as Nominatim's countrycodes takes them
+    @Pattern(
+            regexp = "^[A-Za-z]{2}(,[A-Za-z]{2})*$",
+            message = "Invalid country code format"
+    )
     private String countrycodes;
 
 }
@@ -0,0 +1,18 @@
+package com.example.weather.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchWeatherItem {
+    private String zipCode;
+    private String countrycodes;
+    private int status;
+    private WeatherResponse weather;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.example.weather.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchWeatherResponse {
+    private List<BatchWeatherItem> results;
+}
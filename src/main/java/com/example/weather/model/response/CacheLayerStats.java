@@ -0,0 +1,13 @@
+package com.example.weather.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheLayerStats {
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long estimatedSize;
+}
@@ -0,0 +1,101 @@
+package com.example.weather.model.response;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Open-Meteo daily max/min series in the form it is cached: a first day plus one float per day, instead of the
+ * JSON text. {@link #toJson()} renders the {@code daily} block back when a response is written.
+ * <p>
+ * Immutable, so one instance is shared by every cached copy of a forecast. A missing value is stored as NaN and
+ * rendered as {@code null}.
+ */
+public final class DailyForecast {
+
+    private final long firstEpochDay;
+    private final float[] maxTemps;
+    private final float[] minTemps;
+
+    public DailyForecast(long firstEpochDay, float[] maxTemps, float[] minTemps) {
+        if (maxTemps.length != minTemps.length) {
+            throw new IllegalArgumentException("Daily max and min series differ in length: " + maxTemps.length + " vs " + minTemps.length);
+        }
+        this.firstEpochDay = firstEpochDay;
+        this.maxTemps = maxTemps;
+        this.minTemps = minTemps;
+    }
+
+    public long firstEpochDay() {
+        return firstEpochDay;
+    }
+
+    public int days() {
+        return maxTemps.length;
+    }
+
+    public float maxTemp(int day) {
+        return maxTemps[day];
+    }
+
+    public float minTemp(int day) {
+        return minTemps[day];
+    }
+
+    // Same shape and field order as the upstream block: {"time":[...],"temperature_2m_max":[...],"temperature_2m_min":[...]}
+    public String toJson() {
+        StringBuilder json = new StringBuilder(32 + days() * 26);
+        json.append("{\"time\":[");
+        for (int day = 0; day < days(); day++) {
+            if (day > 0) {
+                json.append(',');
+            }
+            json.append('"').append(LocalDate.ofEpochDay(firstEpochDay + day)).append('"');
+        }
+        appendSeries(json.append("],\"temperature_2m_max\":["), maxTemps);
+        appendSeries(json.append("],\"temperature_2m_min\":["), minTemps);
+        return json.append("]}").toString();
+    }
+
+    // Heap footprint: this object plus two float arrays, with 8-byte alignment and compressed references
+    public int estimatedBytes() {
+        return 32 + 2 * align(16 + Float.BYTES * days());
+    }
+
+    private static void appendSeries(StringBuilder json, float[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (Float.isNaN(values[i])) {
+                json.append("null");
+            } else {
+                json.append(values[i]);
+            }
+        }
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DailyForecast other)) {
+            return false;
+        }
+        return firstEpochDay == other.firstEpochDay && Arrays.equals(maxTemps, other.maxTemps) && Arrays.equals(minTemps, other.minTemps);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(firstEpochDay) + Arrays.hashCode(maxTemps)) + Arrays.hashCode(minTemps);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.weather.model.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The UTF-8 JSON of a cached {@link WeatherResponse}, encoded once when the entry is cached and written as-is on
+ * every hit.
+ */
+public final class EncodedWeather {
+
+    private final byte[] json;
+
+    public EncodedWeather(byte[] json) {
+        this.json = json;
+    }
+
+    public long contentLength() {
+        return json.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(json);
+    }
+
+    // Heap footprint of this object and its array, with 8-byte alignment and compressed references
+    public int estimatedBytes() {
+        return 16 + ((16 + json.length + 7) & ~7);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.weather.model.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A weather response cut down to the fields a client asked for with {@code fields=}. It is written straight from the
+ * response's getters, so no trimmed copy is built, and a field that isn't asked for costs nothing; the extended
+ * forecast in particular is only rendered from the daily series when it is requested.
+ */
+public final class ProjectedWeather {
+
+    // In the order Jackson writes a full WeatherResponse, so a projection reads like the full body with fields removed
+    public enum Field {
+        CURRENT_TEMP("currentTemp"),
+        MAX_TEMP("maxTemp"),
+        MIN_TEMP("minTemp"),
+        EXTENDED_FORECAST("extendedForecast"),
+        FROM_CACHE("fromCache");
+
+        private static final Map<String, Field> BY_LOWER_CASE_NAME = new HashMap<>();
+
+        static {
+            for (Field field : values()) {
+                BY_LOWER_CASE_NAME.put(field.jsonName.toLowerCase(Locale.ROOT), field);
+            }
+        }
+
+        private final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        public String jsonName() {
+            return jsonName;
+        }
+    }
+
+    private final WeatherResponse response;
+    private final Set<Field> fields;
+
+    public ProjectedWeather(WeatherResponse response, Set<Field> fields) {
+        this.response = response;
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma-separated list of JSON property names, e.g. {@code currentTemp,fromCache}. Names are matched
+     * case-insensitively; an unknown name is an {@link IllegalArgumentException}.
+     */
+    public static Set<Field> parseFields(String fields) {
+        Set<Field> parsed = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Field field = Field.BY_LOWER_CASE_NAME.get(trimmed.toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed);
+            }
+            parsed.add(field);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        return parsed;
+    }
+
+    public WeatherResponse getResponse() {
+        return response;
+    }
+
+    public void writeTo(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        for (Field field : fields) {
+            json.writeFieldName(field.jsonName);
+            switch (field) {
+                case CURRENT_TEMP -> json.writeNumber(response.getCurrentTemp());
+                case MAX_TEMP -> json.writeNumber(response.getMaxTemp());
+                case MIN_TEMP -> json.writeNumber(response.getMinTemp());
+                case EXTENDED_FORECAST -> json.writeString(response.getExtendedForecast());
+                case FROM_CACHE -> json.writeBoolean(response.isFromCache());
+            }
+        }
+        json.writeEndObject();
+    }
+}
@@ -1,16 +1,82 @@
 package com.example.weather.model.response;
 
-import lombok.Data;
-import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+import java.util.Objects;
+
+/**
+ * Immutable, so one instance can be cached, shared between readers and pushed to stream subscribers as it is. The
+ * cached form is built once, with {@code fromCache} set and its JSON already encoded; the caller whose request loaded
+ * it gets a {@link #withFromCache fromCache=false} sibling instead.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
 public class WeatherResponse {
-    private double currentTemp;
-    private double maxTemp;
-    private double minTemp;
-    private String extendedForecast;
-    private boolean fromCache;
+    private final double currentTemp;
+    private final double maxTemp;
+    private final double minTemp;
+    // free-text forecast; upstream forecasts use daily instead and render it on read
+    private final String extendedForecast;
+    @JsonIgnore
+    private final DailyForecast daily;
+    private final boolean fromCache;
+    // when the forecast was fetched upstream; 0 if unknown. Drives ETag, Last-Modified and max-age
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private final long fetchedAtMillis;
+    // the JSON of this response, encoded when it was cached; null means serialize as usual
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final EncodedWeather encoded;
+
+    public WeatherResponse(double currentTemp, double maxTemp, double minTemp, String extendedForecast, boolean fromCache) {
+        this(currentTemp, maxTemp, minTemp, extendedForecast, null, fromCache, 0, null);
+    }
+
+    public WeatherResponse(double currentTemp, double maxTemp, double minTemp, DailyForecast daily, boolean fromCache) {
+        this(currentTemp, maxTemp, minTemp, null, daily, fromCache, 0, null);
+    }
+
+    private WeatherResponse(double currentTemp, double maxTemp, double minTemp, String extendedForecast, DailyForecast daily,
+                            boolean fromCache, long fetchedAtMillis, EncodedWeather encoded) {
+        this.currentTemp = currentTemp;
+        this.maxTemp = maxTemp;
+        this.minTemp = minTemp;
+        this.extendedForecast = extendedForecast;
+        this.daily = daily;
+        this.fromCache = fromCache;
+        this.fetchedAtMillis = fetchedAtMillis;
+        this.encoded = encoded;
+    }
+
+    // The cached form holds only the compact series; the JSON text exists just while a response is written
+    public String getExtendedForecast() {
+        return daily != null ? daily.toJson() : extendedForecast;
+    }
+
+    // The withers share the forecast series, so handing one forecast to several cache keys doesn't duplicate it
+    public WeatherResponse withFetchedAtMillis(long fetchedAtMillis) {
+        return new WeatherResponse(currentTemp, maxTemp, minTemp, extendedForecast, daily, fromCache, fetchedAtMillis, null);
+    }
+
+    // Encoded JSON carries the fromCache value, so a sibling with the other value is serialized as usual
+    public WeatherResponse withFromCache(boolean fromCache) {
+        return fromCache == this.fromCache ? this
+                : new WeatherResponse(currentTemp, maxTemp, minTemp, extendedForecast, daily, fromCache, fetchedAtMillis, null);
+    }
+
+    public WeatherResponse withEncoded(EncodedWeather encoded) {
+        return new WeatherResponse(currentTemp, maxTemp, minTemp, extendedForecast, daily, fromCache, fetchedAtMillis, encoded);
+    }
+
+    // Weak, since the body also carries fromCache, which differs between the first response for an entry and later ones
+    public String etag() {
+        int content = Objects.hash(currentTemp, maxTemp, minTemp, extendedForecast, daily);
+        return "W/\"" + Long.toHexString(fetchedAtMillis) + "-" + Integer.toHexString(content) + "\"";
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.weather.quota;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-subject token buckets, one {@link AtomicLong} each. A bucket is stored as the time at which it will be full
+ * again (the GCRA form of a token bucket), so taking a token is a read, a bit of arithmetic and one CAS, with no
+ * separate refill step and no lock.
+ * <p>
+ * Subjects are spread over a fixed number of stripes, each its own map with its own sweep schedule. A bucket that has
+ * been full for {@code idleAfter} is dropped by its stripe's next sweep, so memory follows the active callers rather
+ * than every subject ever seen. A sweep can race with a request on the bucket it drops; that request is granted from
+ * a bucket that was full anyway, and the subject's next request starts a new full one, so at worst one extra request
+ * gets through.
+ */
+public final class SubjectQuotaTable {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final long idleAfterNanos;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public SubjectQuotaTable(int requestsPerSecond, int burst, Duration idleAfter, int stripeCount) {
+        if (requestsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Quota rate and burst must be positive: " + requestsPerSecond + "/s, burst " + burst);
+        }
+        this.nanosPerToken = Duration.ofSeconds(1).toNanos() / requestsPerSecond;
+        this.burstNanos = nanosPerToken * burst;
+        this.idleAfterNanos = idleAfter.toNanos();
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Stripe[size];
+        this.stripeMask = size - 1;
+        long now = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(now + idleAfterNanos);
+        }
+    }
+
+    /**
+     * Takes one token from the subject's bucket. Returns 0 when granted, otherwise how many nanoseconds until the
+     * next token is available; a rejected request consumes nothing.
+     */
+    public long tryAcquire(String subject) {
+        return tryAcquire(subject, System.nanoTime());
+    }
+
+    long tryAcquire(String subject, long now) {
+        Stripe stripe = stripeFor(subject);
+        sweepIfDue(stripe, now);
+        AtomicLong bucket = stripe.buckets.get(subject);
+        if (bucket == null) {
+            bucket = stripe.buckets.computeIfAbsent(subject, s -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + nanosPerToken;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Subjects currently holding a bucket
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String subject) {
+        int hash = subject.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+    }
+
+    // One caller per stripe wins the CAS and sweeps; the rest carry on without waiting for it
+    private void sweepIfDue(Stripe stripe, long now) {
+        long due = stripe.nextSweepAt.get();
+        if (now - due < 0 || !stripe.nextSweepAt.compareAndSet(due, now + idleAfterNanos)) {
+            return;
+        }
+        for (Map.Entry<String, AtomicLong> entry : stripe.buckets.entrySet()) {
+            if (now - entry.getValue().get() >= idleAfterNanos) {
+                stripe.buckets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static final class Stripe {
+        final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong nextSweepAt;
+
+        Stripe(long firstSweepAt) {
+            this.nextSweepAt = new AtomicLong(firstSweepAt);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.weather.service;
+
+import com.example.weather.cache.WeatherGridCache;
+import com.example.weather.clients.OpenMeteoWeatherClient;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.interfaces.GeocodingClient;
+import com.example.weather.interfaces.WeatherClient;
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+
+/**
+ * The upstream end of a weather load: geocodes a zip code and fetches the forecast for its grid cell, one location
+ * at a time or many per Open-Meteo call. Failures are thrown to the caller, which decides what to remember.
+ */
+@Slf4j
+@Component
+public class UpstreamWeatherFetcher {
+
+    private final GeocodingClient geocodingClient;
+
+    private final WeatherGridCache weatherGridCache;
+
+    private final WeatherClient weatherClient;
+
+    private final OpenMeteoWeatherClient openMeteo;
+
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${cache.weather.refresh-after-write-minutes:0}")
+    private int refreshAfterWriteMinutes;
+
+    @Value("${weather.batch.geocoding-parallelism:4}")
+    private int batchGeocodingParallelism = 4;
+
+    @Value("${weather.batch.locations-per-request:50}")
+    private int batchLocationsPerRequest = 50;
+
+    public UpstreamWeatherFetcher(GeocodingClient geocodingClient,
+                                  WeatherGridCache weatherGridCache,
+                                  WeatherClient weatherClient,
+                                  OpenMeteoWeatherClient openMeteo,
+                                  @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.geocodingClient = geocodingClient;
+        this.weatherGridCache = weatherGridCache;
+        this.weatherClient = weatherClient;
+        this.openMeteo = openMeteo;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    // The forecast for a zip code, or null if the zip code is unknown; a refresh never reuses a cell forecast older than
+    // refresh-after-write, so a refreshed zip entry doesn't get stale cell data
+    public WeatherResponse fetch(String zipCode, String countrycodes, boolean refreshing) {
+        double[] coords = getCoordinates(zipCode, countrycodes);
+        if (coords == null){
+            log.error("Failed to retrieve coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for failed coordinate retrieval
+            return null;
+        }
+
+        log.debug("Fetching weather data from external API for zip code: {}", zipCode);  // Log for API call
+        if (refreshing) {
+            return weatherGridCache.getNoOlderThan(coords[0], coords[1], Duration.ofMinutes(refreshAfterWriteMinutes), this::fetchForecast);
+        }
+        return weatherGridCache.get(coords[0], coords[1], this::fetchForecast);
+    }
+
+    // Looked up by a bounded set of workers, since most of a batch may need Nominatim. A lookup that throws, e.g. a
+    // full Nominatim queue, is recorded against its key and the workers carry on.
+    public Map<String, double[]> geocodeAll(Collection<String> keys, Map<String, WeatherRequest> requests,
+                                            Map<String, RuntimeException> failures) {
+        Map<String, double[]> coordinates = new ConcurrentHashMap<>();
+        Queue<String> unresolved = new ConcurrentLinkedQueue<>(keys);
+
+        int workers = Math.min(batchGeocodingParallelism, keys.size());
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                String key;
+                while ((key = unresolved.poll()) != null) {
+                    WeatherRequest request = requests.get(key);
+                    try {
+                        double[] coords = getCoordinates(request.getZipCode(), request.getCountrycodes());
+                        if (coords != null) {
+                            coordinates.put(key, coords);
+                        }
+                    } catch (RuntimeException e) {
+                        failures.put(key, e);
+                    }
+                }
+            }, upstreamExecutor);
+        }
+        CompletableFuture.allOf(tasks).join();
+        return coordinates;
+    }
+
+    /**
+     * Forecasts for geocoded keys. Keys sharing a grid cell cost one location, cells already in the grid cache cost
+     * none, and the rest are fetched in multi-location calls. Each key is handed to exactly one of the callbacks.
+     */
+    public void fetchAll(Map<String, double[]> coordinates, BiConsumer<String, WeatherResponse> onForecast,
+                         BiConsumer<String, RuntimeException> onFailure) {
+        Map<String, double[]> points = new LinkedHashMap<>();
+        Map<String, List<String>> keysByPoint = new HashMap<>();
+        coordinates.forEach((key, coords) -> {
+            WeatherResponse fromGrid = weatherGridCache.getIfPresent(coords[0], coords[1]);
+            if (fromGrid != null) {
+                onForecast.accept(key, fromGrid);
+                return;
+            }
+            double[] point = weatherGridCache.snap(coords[0], coords[1]);
+            String pointKey = point[0] + "," + point[1];
+            points.putIfAbsent(pointKey, point);
+            keysByPoint.computeIfAbsent(pointKey, k -> new ArrayList<>()).add(key);
+        });
+
+        List<String> pointKeys = new ArrayList<>(points.keySet());
+        for (int from = 0; from < pointKeys.size(); from += batchLocationsPerRequest) {
+            List<String> chunk = pointKeys.subList(from, Math.min(from + batchLocationsPerRequest, pointKeys.size()));
+            List<WeatherResponse> forecasts;
+            try {
+                forecasts = fetchForecasts(chunk.stream().map(points::get).toList());
+            } catch (RuntimeException e) {
+                chunk.forEach(pointKey -> keysByPoint.get(pointKey).forEach(key -> onFailure.accept(key, e)));
+                continue;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                double[] point = points.get(chunk.get(i));
+                WeatherResponse forecast = forecasts.get(i);
+                weatherGridCache.put(point[0], point[1], forecast);
+                keysByPoint.get(chunk.get(i)).forEach(key -> onForecast.accept(key, forecast));
+            }
+        }
+    }
+
+    // Single locations go through the routing client, which picks between the configured forecast providers
+    private WeatherResponse fetchForecast(double latitude, double longitude) {
+        try {
+            return weatherClient.getWeather(latitude, longitude);
+        } catch (RateLimitExceededException e) {
+            log.warn("Weather API queue is full, not fetching weather for coordinates: {}, {}", latitude, longitude);
+            throw e;
+        } catch (Exception e) {
+            //handle api failure
+            log.error("Fetching weather data from API for coordinates: {}, {}", latitude, longitude, e);  // Log for API exception
+            throw new RuntimeException("Failed to fetch weather data", e);
+        }
+
+    }
+
+    // Multi-location calls always go to Open-Meteo itself, the one provider known to take coordinate lists
+    private List<WeatherResponse> fetchForecasts(List<double[]> points) {
+        try {
+            log.debug("Fetching weather data from external API for {} locations", points.size());
+            List<WeatherResponse> forecasts = openMeteo.getWeather(points);
+            if (forecasts == null) {
+                throw new IllegalStateException("Empty response body");
+            }
+            if (forecasts.size() != points.size()) {
+                throw new IllegalStateException("Expected " + points.size() + " forecasts but got " + forecasts.size());
+            }
+            return forecasts;
+        } catch (RateLimitExceededException e) {
+            log.warn("Weather API queue is full, not fetching {} locations", points.size());
+            throw e;
+        } catch (Exception e) {
+            log.error("Fetching weather data from API for {} locations", points.size(), e);
+            throw new RuntimeException("Failed to fetch weather data", e);
+        }
+    }
+
+    // Through the geocoding client: the offline dataset, the geocoding cache, and Nominatim for the rest. Null when
+    // the zip code is unknown; a failed lookup throws
+    private double[] getCoordinates(String zipCode, String countrycodes) {
+        try {
+            log.debug("Fetching coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for coordinates API call
+            Coordinates found = geocodingClient.getCoordinates(zipCode, countrycodes);
+            if (found == null){
+                log.error("Failed to retrieve valid coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for invalid coordinates
+                return null;
+            }
+            return new double[]{found.getLatitude(), found.getLongitude()};
+        } catch (RateLimitExceededException e) {
+            log.warn("Coordinates API queue is full, not geocoding zip code: {}", zipCode);
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Exception occurred while fetching coordinates for zip code: {} and country code: {}", zipCode, countrycodes, e);  // Log for exception
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.weather.service;
+
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.cache.PeerWeatherCache;
+import com.example.weather.cache.WeatherDiskCache;
+import com.example.weather.cache.WeatherJsonEncoder;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.customException.UpstreamUnavailableException;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.stream.WeatherUpdatedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Loads what the weather cache misses, tier by tier: a key known to have no answer is answered from the negative
+ * cache, a still-fresh copy in the disk cache is served as-is, a key another replica owns is asked of that replica,
+ * and anything else goes upstream and is written through to disk. Also the cache's refresh-ahead loader.
+ */
+@Slf4j
+@Component
+public class WeatherLoader implements AsyncCacheLoader<String, WeatherResponse> {
+
+    private final NegativeWeatherCache negativeCache;
+
+    private final WeatherDiskCache weatherDiskCache;
+
+    private final PeerWeatherCache peerCache;
+
+    private final UpstreamWeatherFetcher upstream;
+
+    private final WeatherJsonEncoder jsonEncoder;
+
+    private final ExecutorService upstreamExecutor;
+
+    private final ApplicationEventPublisher events;
+
+    public WeatherLoader(NegativeWeatherCache negativeCache,
+                         WeatherDiskCache weatherDiskCache,
+                         PeerWeatherCache peerCache,
+                         UpstreamWeatherFetcher upstream,
+                         WeatherJsonEncoder jsonEncoder,
+                         @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor,
+                         ApplicationEventPublisher events) {
+        this.negativeCache = negativeCache;
+        this.weatherDiskCache = weatherDiskCache;
+        this.peerCache = peerCache;
+        this.upstream = upstream;
+        this.jsonEncoder = jsonEncoder;
+        this.upstreamExecutor = upstreamExecutor;
+        this.events = events;
+    }
+
+    /**
+     * What a load puts in the weather cache, and whether it came from the disk tier. The caller that ran the load is
+     * served the cached form as-is after a disk restore, and otherwise a fromCache=false sibling, since its own request
+     * is what fetched it.
+     */
+    record Loaded(WeatherResponse cached, boolean fromDisk) {
+        WeatherResponse served() {
+            return cached == null || fromDisk ? cached : cached.withFromCache(false);
+        }
+    }
+
+    // L1 miss for one key; askPeers is false when another replica is asking, so a request is never passed on twice
+    Loaded load(String cachekey, String zipCode, String countryCode, boolean askPeers) {
+        NegativeWeatherCache.Reason knownBad = negativeCache.get(cachekey);
+        if (knownBad != null) {
+            log.debug("Negative cache hit for zip code: {} ({})", cachekey, knownBad);
+            return new Loaded(answerKnownBad(cachekey, knownBad), false);
+        }
+        WeatherResponse stored = weatherDiskCache.get(cachekey);
+        if (stored != null) {
+            return new Loaded(cacheable(cachekey, stored), true);
+        }
+        String owner = askPeers ? peerCache.remoteOwner(cachekey) : null;
+        if (owner != null) {
+            try {
+                WeatherResponse fromOwner = peerCache.fetch(owner, cachekey, zipCode, countryCode);
+                if (fromOwner == null) {
+                    negativeCache.notFound(cachekey);
+                }
+                return new Loaded(cacheable(cachekey, fromOwner), false);
+            } catch (RateLimitExceededException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("Could not get {} from its owner {}, fetching it upstream instead: {}", cachekey, owner, e.getMessage());
+            }
+        }
+        //call external api if data is not in cache
+        log.debug("Cache miss for zip code: {}. Fetching data from external API.", cachekey);  // Log for cache miss
+        WeatherResponse fresh;
+        try {
+            fresh = upstream.fetch(zipCode, countryCode, false);
+        } catch (RuntimeException e) {
+            throw upstreamFailure(cachekey, e);
+        }
+        if (fresh == null) {
+            negativeCache.notFound(cachekey);
+            return new Loaded(null, false);
+        }
+        weatherDiskCache.put(cachekey, fresh);
+        return new Loaded(cacheable(cachekey, fresh), false);
+    }
+
+    /**
+     * Loads keys a batch claimed, completing each claimed future. Keys still fresh on disk need neither geocoding
+     * nor a forecast call; the rest are geocoded in parallel and fetched in multi-location calls. Keys restored from
+     * disk are added to restored, and keys answered with a forecast fetched for this batch to fetched.
+     */
+    void loadBatch(Map<String, CompletableFuture<WeatherResponse>> claimed, Map<String, WeatherRequest> requests,
+                   Set<String> restored, Set<String> fetched) {
+        Map<String, CompletableFuture<WeatherResponse>> owned = new LinkedHashMap<>();
+        claimed.forEach((key, future) -> {
+            NegativeWeatherCache.Reason knownBad = negativeCache.get(key);
+            WeatherResponse stored = knownBad == null ? weatherDiskCache.get(key) : null;
+            if (knownBad != null) {
+                try {
+                    future.complete(answerKnownBad(key, knownBad));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            } else if (stored != null) {
+                future.complete(cacheable(key, stored));
+                restored.add(key);
+            } else {
+                owned.put(key, future);
+            }
+        });
+
+        Map<String, RuntimeException> geocodingFailures = new ConcurrentHashMap<>();
+        Map<String, double[]> found = upstream.geocodeAll(owned.keySet(), requests, geocodingFailures);
+        // in claim order, so the multi-location calls are filled the same way every time
+        Map<String, double[]> coordinates = new LinkedHashMap<>();
+        owned.forEach((key, future) -> {
+            RuntimeException failure = geocodingFailures.get(key);
+            double[] coords = found.get(key);
+            if (failure != null) {
+                future.completeExceptionally(upstreamFailure(key, failure));
+            } else if (coords != null) {
+                coordinates.put(key, coords);
+            } else {
+                negativeCache.notFound(key);
+                future.complete(null);
+            }
+        });
+
+        upstream.fetchAll(coordinates, (key, forecast) -> {
+            fetched.add(key);
+            owned.get(key).complete(cacheable(key, forecast));
+            weatherDiskCache.put(key, forecast);
+        }, (key, failure) -> owned.get(key).completeExceptionally(upstreamFailure(key, failure)));
+    }
+
+    // Not found is a null (404); a recent upstream failure is a 503 until its negative entry expires
+    private WeatherResponse answerKnownBad(String cachekey, NegativeWeatherCache.Reason reason) {
+        if (reason == NegativeWeatherCache.Reason.UPSTREAM_FAILED) {
+            throw unavailable(cachekey, null);
+        }
+        return null;
+    }
+
+    // Our own pacing turning a call away is passed on as it is, the upstream never saw it. A failed upstream call is
+    // remembered for the failure TTL and answered with 503 straight away, without reading that entry back.
+    private RuntimeException upstreamFailure(String cachekey, RuntimeException failure) {
+        if (failure instanceof RateLimitExceededException) {
+            return failure;
+        }
+        negativeCache.failed(cachekey);
+        return unavailable(cachekey, failure);
+    }
+
+    private UpstreamUnavailableException unavailable(String cachekey, Throwable cause) {
+        return new UpstreamUnavailableException("Weather data for this location is temporarily unavailable. Please try again later.",
+                negativeCache.retryAfterSeconds(cachekey), cause);
+    }
+
+    // Whatever is about to enter the weather cache passes through here: turned into its cached form, encoded once
+    // rather than on every hit, and announced to stream subscribers of the key
+    private WeatherResponse cacheable(String cachekey, WeatherResponse response) {
+        if (response == null) {
+            return null;
+        }
+        WeatherResponse cached = jsonEncoder.toCached(response);
+        events.publishEvent(new WeatherUpdatedEvent(cachekey, cached));
+        return cached;
+    }
+
+    /**
+     * Refresh-ahead reload, called by the cache once an entry is older than refresh-after-write. Readers keep getting
+     * the current value while this runs on the upstream executor; only an entry past expire-after-write blocks them.
+     */
+    @Override
+    public CompletableFuture<WeatherResponse> asyncLoad(String key, Executor executor) {
+        // zip codes can't contain '_' (see WeatherRequest), so the first one separates zip and country
+        int separator = key.indexOf('_');
+        String zipCode = separator < 0 ? key : key.substring(0, separator);
+        String countryCode = separator < 0 ? null : key.substring(separator + 1);
+        return CompletableFuture.supplyAsync(() -> {
+            log.info("Refreshing cached weather data for zip code: {}", key);
+            WeatherResponse fresh = upstream.fetch(zipCode, countryCode, true);
+            if (fresh != null) {
+                weatherDiskCache.put(key, fresh);
+            }
+            return cacheable(key, fresh);
+        }, upstreamExecutor);
+    }
+
+    // A refresh that finds nothing keeps the current value instead of evicting it; failures are kept the same way by the cache
+    @Override
+    public CompletableFuture<WeatherResponse> asyncReload(String key, WeatherResponse oldValue, Executor executor) {
+        return asyncLoad(key, executor).thenApply(fresh -> fresh != null ? fresh : oldValue);
+    }
+}
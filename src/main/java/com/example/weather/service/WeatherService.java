@@ -1,176 +1,204 @@
 package com.example.weather.service;
 
+import com.example.weather.cache.PeerWeatherCache;
+import com.example.weather.cache.SingleFlight;
+import com.example.weather.cache.WeatherDiskCache;
 import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.customException.UpstreamUnavailableException;
+import com.example.weather.model.response.BatchWeatherItem;
 import com.example.weather.model.request.WeatherRequest;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
-import jakarta.validation.Valid;
+import com.example.weather.metrics.WeatherMetrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.web.bind.annotation.ModelAttribute;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.client.RestTemplate;
 import com.example.weather.model.response.WeatherResponse;
-import org.springframework.http.ResponseEntity;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.github.benmanes.caffeine.cache.Cache;
-
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Answers weather requests from the weather cache, with one load per missing key however many callers ask for it.
+ * What a miss is loaded from is up to the {@link WeatherLoader}.
+ */
 @Slf4j
 @Service
 public class WeatherService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private  final AsyncCache<String, WeatherResponse> weatherCache;
+
+    private final WeatherLoader loader;
 
-    private  final Cache<String, WeatherResponse> weatherCache;
+    private final WeatherDiskCache weatherDiskCache;
 
-    @Value("${weather.api.url}")
-    private String weatherApiUrl;
+    private final PeerWeatherCache peerCache;
 
-    @Value("${geo.api.url}")
-    private String geoApiUrl;
+    private final WeatherMetrics metrics;
 
     @Autowired
-    public WeatherService(@Qualifier("weatherCaffeineCache") Cache<String, WeatherResponse> weatherCache) {
+    public WeatherService(@Qualifier("weatherCaffeineCache") AsyncCache<String, WeatherResponse> weatherCache,
+                          WeatherLoader loader,
+                          WeatherDiskCache weatherDiskCache,
+                          PeerWeatherCache peerCache,
+                          WeatherMetrics metrics) {
         this.weatherCache = weatherCache;
+        this.loader = loader;
+        this.weatherDiskCache = weatherDiskCache;
+        this.peerCache = peerCache;
+        this.metrics = metrics;
     }
 
 
     public WeatherResponse getWeather(WeatherRequest request) {
+        return getWeather(request, true);
+    }
+
+    // For another replica asking about a key it thinks this one owns: answered from here, never passed on again
+    public WeatherResponse getWeatherForPeer(WeatherRequest request) {
+        return getWeather(request, false);
+    }
+
+    private WeatherResponse getWeather(WeatherRequest request, boolean askPeers) {
         String zipCode = request.getZipCode();
         String countryCode = request.getCountrycodes();
 
         String cachekey = buildCacheKey(zipCode,countryCode);
 
-        //check cache
-        WeatherResponse cachedResponse  = weatherCache.getIfPresent(cachekey);
-        System.out.println("Using cache: " + (weatherCache.getIfPresent(cachekey) != null));
-
-        log.info("Cache key : {}", cachekey);
-
-        if (cachedResponse != null) {
-            cachedResponse.setFromCache(true);
-            log.info("Cache hit for zip code: {}. Returning cached data.", cachekey);  // Log for cache hit
-            return cachedResponse;
+        // hit/miss/error and latency go to the weather.requests timer; the per-request logs are debug only
+        Timer.Sample sample = metrics.startRequest();
+        // set when this caller runs the load, which answers it with the served form rather than the cached one
+        WeatherLoader.Loaded[] loaded = new WeatherLoader.Loaded[1];
+        SingleFlight.Result<WeatherResponse> result;
+        try {
+            result = SingleFlight.getOrLoad(weatherCache, cachekey,
+                    () -> (loaded[0] = loader.load(cachekey, zipCode, countryCode, askPeers)).cached());
+        } catch (RuntimeException e) {
+            metrics.stopRequest(sample, WeatherMetrics.CacheResult.ERROR);
+            throw e;
         }
-
-        //call external api if data is not in cache
-        log.info("Cache miss for zip code: {}. Fetching data from external API.", cachekey);  // Log for cache miss
-        WeatherResponse freshWeatherResponse = fetchWeatherDataFromApi(zipCode, countryCode);
-
-        // Update cache if the API call is successful
-        if (freshWeatherResponse != null) {
-            weatherCache.put(cachekey, freshWeatherResponse);
-            log.info("Weather data fetched from API and stored in cache for zip code: {}", cachekey);  // Log for storing in cache
-        } else {
-            log.error("Failed to fetch weather data from API for zip code: {}", cachekey);  // Log for API failure
+        WeatherResponse response = result.value();
+
+        switch (result.outcome()) {
+            case HIT -> log.debug("Cache hit for zip code: {}. Returning cached data.", cachekey);  // Log for cache hit
+            case JOINED -> log.debug("Joined in-flight fetch for zip code: {}.", cachekey);
+            case LOADED -> {
+                response = loaded[0].served();
+                // A null result is not cached, so the next request for this key retries upstream
+                if (response != null && response.isFromCache()) {
+                    weatherDiskCache.alignExpiry(weatherCache, cachekey);
+                    log.debug("Weather data for zip code: {} restored from the disk cache", cachekey);
+                } else if (response != null) {
+                    log.debug("Weather data fetched from API and stored in cache for zip code: {}", cachekey);  // Log for storing in cache
+                } else {
+                    log.error("Failed to fetch weather data from API for zip code: {}", cachekey);  // Log for API failure
+                }
+                // a key another replica owns is only kept here for the short hot TTL
+                peerCache.alignExpiry(weatherCache, cachekey, response);
+            }
         }
-        return freshWeatherResponse;
+        metrics.stopRequest(sample, response == null ? WeatherMetrics.CacheResult.ERROR
+                : result.outcome() == SingleFlight.Outcome.HIT ? WeatherMetrics.CacheResult.HIT
+                : result.outcome() == SingleFlight.Outcome.LOADED && response.isFromCache() ? WeatherMetrics.CacheResult.DISK
+                : WeatherMetrics.CacheResult.MISS);
+        return response;
     }
 
-    //create cache key dynamically as per the request parameters
-    private String buildCacheKey(String zipCode, String countryCode) {
-        return countryCode == null || countryCode.isBlank()
-                ? zipCode
-                : zipCode + "_" + countryCode;
+    /**
+     * Reads the key the way a request would, without counting as one: a read is what triggers refresh-ahead, and an
+     * expired entry is loaded again. Keeps keys with stream subscribers current while nobody polls them.
+     */
+    public void keepFresh(WeatherRequest request) {
+        String cachekey = buildCacheKey(request.getZipCode(), request.getCountrycodes());
+        SingleFlight.Result<WeatherResponse> result = SingleFlight.getOrLoad(weatherCache, cachekey,
+                () -> loader.load(cachekey, request.getZipCode(), request.getCountrycodes(), true).cached());
+        if (result.outcome() == SingleFlight.Outcome.LOADED) {
+            peerCache.alignExpiry(weatherCache, cachekey, result.value());
+        }
     }
 
-    @RateLimiter(name = "weatherRateLimiter", fallbackMethod = "fallbackWeather")
-    private WeatherResponse fetchWeatherDataFromApi(String zipCode, String countrycodes) {
-        double[] coords = getCoordinates(zipCode, countrycodes);
-        if (coords == null){
-            log.error("Failed to retrieve coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for failed coordinate retrieval
-            return null;
+    /**
+     * Weather for many locations at once. Duplicate keys are resolved once, cached entries are served as-is, and
+     * the remaining locations are geocoded in parallel and fetched from Open-Meteo in multi-location calls.
+     * A failing location only fails its own item, never the whole batch.
+     */
+    public List<BatchWeatherItem> getWeatherBatch(List<WeatherRequest> requests) {
+        Map<String, WeatherRequest> unique = new LinkedHashMap<>();
+        for (WeatherRequest request : requests) {
+            unique.putIfAbsent(buildCacheKey(request.getZipCode(), request.getCountrycodes()), request);
         }
 
-        String url = String.format(
-                "%s?latitude=%f&longitude=%f&current_weather=true&daily=temperature_2m_max,temperature_2m_min&timezone=auto",
-                weatherApiUrl, coords[0], coords[1]
-        );
-
-        try {
-            log.info("Fetching weather data from external API for zip code: {}", zipCode);  // Log for API call
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
-            JsonNode body = response.getBody();
-
-            if (body == null) return null;
-
-            double currentTemp = body.get("current_weather").get("temperature").asDouble();
-            double maxTemp = body.get("daily").get("temperature_2m_max").get(0).asDouble();
-            double minTemp = body.get("daily").get("temperature_2m_min").get(0).asDouble();
-            String extendedForecast = body.get("daily").toString();
-
-            return new WeatherResponse(currentTemp, maxTemp, minTemp, extendedForecast, false);
-        } catch (Exception e) {
-            //handle api failure
-            log.error("Fetching weather data from API for zip code: {}", zipCode, e);  // Log for API exception
-            throw new RuntimeException("Failed to fetch weather data", e);
+        // Claim every missing key up front so concurrent single requests for them wait on this batch
+        Map<String, CompletableFuture<WeatherResponse>> entries = new HashMap<>();
+        Map<String, CompletableFuture<WeatherResponse>> owned = new LinkedHashMap<>();
+        Set<String> hits = new HashSet<>();
+        for (String key : unique.keySet()) {
+            SingleFlight.Claim<WeatherResponse> claim = SingleFlight.claim(weatherCache, key);
+            entries.put(key, claim.future());
+            if (claim.owner()) {
+                owned.put(key, claim.future());
+            } else if (claim.future().isDone()) {
+                hits.add(key);
+            }
         }
-
-    }
-
-
-
-
-
-    @RateLimiter(name = "geoRateLimiter", fallbackMethod = "fallbackCoordinates")
-    public double[] getCoordinates(String zipCode, String countrycodes) {
-        String locationQuery = zipCode + (countrycodes != null ? "," + countrycodes : "");
-        String url = String.format("%s?format=json&q=%s", geoApiUrl, locationQuery);
-        try {
-            log.info("Fetching coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for coordinates API call
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
-            JsonNode array = response.getBody();
-
-            if (array == null || !array.isArray() || array.isEmpty()){
-                log.error("Failed to retrieve valid coordinates for zip code: {} and country code: {}", zipCode, countrycodes);  // Log for invalid coordinates
-                return null;
+        log.info("Batch of {} locations: {} distinct, {} cached, {} to fetch", requests.size(), unique.size(), hits.size(), owned.size());
+
+        // keys this batch fetched upstream, answered fromCache=false like a single request that loads its key
+        Set<String> restored = new HashSet<>();
+        Set<String> fetched = ConcurrentHashMap.newKeySet();
+        if (!owned.isEmpty()) {
+            try {
+                loader.loadBatch(owned, unique, restored, fetched);
+                restored.forEach(key -> weatherDiskCache.alignExpiry(weatherCache, key));
+            } catch (RuntimeException e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+            } finally {
+                // never leave a claimed key pending, other requests may be waiting on it
+                owned.values().forEach(future -> future.completeExceptionally(new IllegalStateException("Batch load aborted")));
             }
-
-            //always taking first element
-            double lat = array.get(0).get("lat").asDouble();
-            double lon = array.get(0).get("lon").asDouble();
-            return new double[]{lat, lon};
-        } catch (Exception e) {
-            log.error("Exception occurred while fetching coordinates for zip code: {} and country code: {}", zipCode, countrycodes, e);  // Log for exception
-            return null;     // instead of null define proper response
         }
 
-    }
-
-    @CachePut(value = "weather", key = "#zipCode")
-    public WeatherResponse refreshCache(@Valid @RequestBody WeatherRequest request) {
-        WeatherResponse freshResponse = getWeather(request);
-        if (freshResponse != null) {
-            freshResponse.setFromCache(false);
+        Map<String, BatchWeatherItem> itemsByKey = new HashMap<>();
+        List<BatchWeatherItem> items = new ArrayList<>(requests.size());
+        for (WeatherRequest request : requests) {
+            String key = buildCacheKey(request.getZipCode(), request.getCountrycodes());
+            items.add(itemsByKey.computeIfAbsent(key, k -> toBatchItem(unique.get(k), entries.get(k), fetched.contains(k))));
         }
-        return freshResponse;
+        return items;
     }
 
-
-    // Fallback methods
-    public WeatherResponse fallbackWeather(String zipCode, Throwable t) {
-        log.error("Rate limit for weather API exceeded for zip code: {}. Error: {}", zipCode, t.getMessage());  // Log for rate limit exceeded
-
-        // You can create a custom message based on the exception or API status
-        throw  new RateLimitExceededException(
-                503,  // HTTP Status code for service unavailable
-                "The external weather service has reached its rate limit. Please try again later.",
-                "3600" // Optional: specify retry time in seconds (e.g., 1 hour)
-        );
+    private BatchWeatherItem toBatchItem(WeatherRequest request, CompletableFuture<WeatherResponse> entry, boolean fetched) {
+        try {
+            WeatherResponse response = SingleFlight.await(entry);
+            if (response == null) {
+                return new BatchWeatherItem(request.getZipCode(), request.getCountrycodes(), 404, null, "Weather data not found");
+            }
+            if (fetched) {
+                response = response.withFromCache(false);
+            }
+            return new BatchWeatherItem(request.getZipCode(), request.getCountrycodes(), 200, response, null);
+        } catch (RateLimitExceededException e) {
+            return new BatchWeatherItem(request.getZipCode(), request.getCountrycodes(), e.getStatusCode(), null, e.getMessage());
+        } catch (UpstreamUnavailableException e) {
+            return new BatchWeatherItem(request.getZipCode(), request.getCountrycodes(), 503, null, e.getMessage());
+        } catch (RuntimeException e) {
+            return new BatchWeatherItem(request.getZipCode(), request.getCountrycodes(), 502, null, e.getMessage());
+        }
     }
 
-    public double[] fallbackCoordinates(String zipCode, Throwable t) {
-        log.error("Rate limit for coordinates API exceeded for zip code: {}. Error: {}", zipCode, t.getMessage());  // Log for rate limit exceeded
-
-        // Similarly, create a custom exception for the coordinates service
-        throw new RateLimitExceededException(
-                429, // HTTP Status code for too many requests
-                "Too many requests. The coordinates service rate limit has been exceeded. Please try again later.",
-                "1200" // Optional: specify retry time in seconds (e.g., 20 minutes)
-        );
+    //create cache key dynamically as per the request parameters
+    public static String buildCacheKey(String zipCode, String countryCode) {
+        return countryCode == null || countryCode.isBlank()
+                ? zipCode
+                : zipCode + "_" + countryCode;
     }
 }
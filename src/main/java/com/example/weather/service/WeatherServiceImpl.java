@@ -31,13 +31,14 @@ public class WeatherServiceImpl implements WeatherServiceInterface {
 
         WeatherResponse cachedResponse = cache.getIfPresent(key);
         if (cachedResponse != null) {
-            cachedResponse.setFromCache(true);
-            return cachedResponse;
+            return cachedResponse.withFromCache(true);
         }
 
         Coordinates coordinates = geocodingClient.getCoordinates(request.getZipCode(), request.getCountrycodes());
+        if (coordinates == null) {
+            throw new RuntimeException("Location not found for ZIP: " + request.getZipCode());
+        }
         WeatherResponse response = weatherClient.getWeather(coordinates.getLatitude(), coordinates.getLongitude());
-        response.setFromCache(false);
         cache.put(key, response);
         return response;
     }
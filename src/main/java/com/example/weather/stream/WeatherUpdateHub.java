@@ -0,0 +1,269 @@
+package com.example.weather.stream;
+
+import com.example.weather.config.WeatherStreamProperties;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.service.WeatherService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fan-out of weather cache updates to Server-Sent Events subscribers, one topic per cache key.
+ * <p>
+ * A subscription is an async {@link SseEmitter}, so an idle stream holds a socket and a few objects but no thread.
+ * Each update is rendered into an event once (from the entry's pre-encoded JSON when it has it) and the same event is
+ * handed to every subscriber of the key. Handing it over never blocks: each subscriber has one pending event (a newer
+ * update replaces one not yet written) and at most one write in flight on the sender pool. A subscriber whose write has
+ * been blocked for longer than the send timeout is dropped the next time an event is offered to it, so a slow client
+ * only ever holds up its own stream.
+ * <p>
+ * Refresh-ahead only happens when an entry is read, and streaming clients stop reading. Every heartbeat therefore
+ * also reads each subscribed key once, so its entry keeps refreshing (or reloads once expired) for as long as anyone
+ * is listening. The heartbeat write is what notices a client that has gone away.
+ */
+@Slf4j
+@Component
+public class WeatherUpdateHub {
+
+    private static final String EVENT_NAME = "weather";
+
+    private final WeatherService weatherService;
+    private final ExecutorService upstreamExecutor;
+    private final WeatherStreamProperties properties;
+    private final long sendTimeoutNanos;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor heartbeats;
+    private final ThreadPoolExecutor senders;
+
+    public WeatherUpdateHub(WeatherService weatherService,
+                            @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor,
+                            WeatherStreamProperties properties) {
+        this.weatherService = weatherService;
+        this.upstreamExecutor = upstreamExecutor;
+        this.properties = properties;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSendTimeoutMillis());
+        CustomizableThreadFactory heartbeatThreads = new CustomizableThreadFactory("weather-stream-heartbeat-");
+        heartbeatThreads.setDaemon(true);
+        this.heartbeats = new ScheduledThreadPoolExecutor(1, heartbeatThreads);
+        // no queue: a write starts on its own thread or waits, as the subscriber's pending event, for the next offer
+        CustomizableThreadFactory senderThreads = new CustomizableThreadFactory("weather-stream-");
+        senderThreads.setDaemon(true);
+        this.senders = new ThreadPoolExecutor(0, Math.max(1, properties.getSendThreads()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), senderThreads);
+        long heartbeat = Math.max(1, properties.getHeartbeatSeconds());
+        this.heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a stream for the request's cache key and sends {@code current} as its first event; later events follow
+     * every update of the key.
+     */
+    public SseEmitter subscribe(WeatherRequest request, WeatherResponse current) {
+        return subscribe(request, current, new SseEmitter(TimeUnit.MINUTES.toMillis(properties.getTimeoutMinutes())));
+    }
+
+    SseEmitter subscribe(WeatherRequest request, WeatherResponse current, SseEmitter emitter) {
+        if (subscribers.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscribers.decrementAndGet();
+            throw new RateLimitExceededException(503, "Too many open weather streams. Please try again later.",
+                    String.valueOf(Math.max(1, properties.getReconnectMillis() / 1000)));
+        }
+        String key = WeatherService.buildCacheKey(request.getZipCode(), request.getCountrycodes());
+        Subscriber subscriber = new Subscriber(key, emitter);
+        topics.compute(key, (k, topic) -> {
+            Topic joined = topic != null ? topic : new Topic(request);
+            joined.subscribers.add(subscriber);
+            return joined;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        subscriber.offer(render(current, SseEmitter.event().reconnectTime(properties.getReconnectMillis())), false);
+        return emitter;
+    }
+
+    // Only renders and hands the event over, so it runs on the thread that loaded the value
+    @EventListener
+    public void onWeatherUpdated(WeatherUpdatedEvent event) {
+        Topic topic = topics.get(event.key());
+        if (topic == null || event.response() == null) {
+            return;
+        }
+        publish(event.key(), topic, event.response());
+    }
+
+    // Open streams across all keys
+    public int subscribers() {
+        return subscribers.get();
+    }
+
+    public int topics() {
+        return topics.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        topics.values().forEach(topic -> topic.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void publish(String key, Topic topic, WeatherResponse response) {
+        String etag = response.etag();
+        synchronized (topic) {
+            // a disk restore or a refresh that found the same forecast is not news
+            if (etag.equals(topic.lastEtag)) {
+                return;
+            }
+            topic.lastEtag = etag;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> event = render(response, SseEmitter.event());
+        for (Subscriber subscriber : topic.subscribers) {
+            subscriber.offer(event, false);
+        }
+        log.debug("Pushed weather update for {} to {} subscribers", key, topic.subscribers.size());
+    }
+
+    private void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("keep-alive").build();
+        topics.forEach((key, topic) -> {
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.offer(ping, true);
+            }
+            // an expired entry is reloaded from upstream right here, so not on the heartbeat thread
+            try {
+                upstreamExecutor.execute(() -> keepFresh(key, topic.request));
+            } catch (RejectedExecutionException e) {
+                log.debug("Upstream executor is shut down, not refreshing {}", key);
+            }
+        });
+    }
+
+    private void keepFresh(String key, WeatherRequest request) {
+        try {
+            weatherService.keepFresh(request);
+        } catch (RuntimeException e) {
+            log.debug("Could not refresh streamed weather for {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Renders an update once; the resulting parts are shared by every subscriber it is sent to
+    private static Set<ResponseBodyEmitter.DataWithMediaType> render(WeatherResponse response, SseEmitter.SseEventBuilder event) {
+        Object body = response.getEncoded() != null ? response.getEncoded() : response;
+        return event.name(EVENT_NAME).id(response.etag()).data(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.dropped = true;
+        topics.computeIfPresent(subscriber.key, (k, topic) -> {
+            if (topic.subscribers.remove(subscriber)) {
+                subscribers.decrementAndGet();
+            }
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+    }
+
+    private static final class Topic {
+        final WeatherRequest request;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // guarded by the topic
+        String lastEtag;
+
+        Topic(WeatherRequest request) {
+            this.request = Objects.requireNonNull(request);
+        }
+    }
+
+    private final class Subscriber {
+        final String key;
+        final SseEmitter emitter;
+        // the next event to write; a newer update replaces it, a heartbeat never does
+        final AtomicReference<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new AtomicReference<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long sendStartedNanos;
+        volatile boolean dropped;
+
+        Subscriber(String key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event, boolean heartbeat) {
+            if (dropped) {
+                return;
+            }
+            if (sending.get() && System.nanoTime() - sendStartedNanos > sendTimeoutNanos) {
+                // the blocked write still holds the emitter, so the sender completes it once the write returns
+                log.debug("Dropping weather stream for {}: a write has been blocked for over {} ms", key,
+                        properties.getSendTimeoutMillis());
+                unsubscribe(this);
+                return;
+            }
+            if (heartbeat) {
+                pending.compareAndSet(null, event);
+            } else {
+                pending.set(event);
+            }
+            startSending();
+        }
+
+        private void startSending() {
+            if (dropped || pending.get() == null || !sending.compareAndSet(false, true)) {
+                return;
+            }
+            sendStartedNanos = System.nanoTime();
+            try {
+                senders.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                // every sender is busy (or the hub is shutting down); the event waits for the next offer
+                sending.set(false);
+            }
+        }
+
+        private void send() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while (!dropped && (event = pending.getAndSet(null)) != null) {
+                    sendStartedNanos = System.nanoTime();
+                    emitter.send(event);
+                }
+                if (dropped) {
+                    emitter.completeWithError(new IOException("Weather stream write blocked for too long"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping weather stream for {}: {}", key, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            } finally {
+                sending.set(false);
+            }
+            // an event offered after the loop last looked
+            startSending();
+        }
+    }
+}
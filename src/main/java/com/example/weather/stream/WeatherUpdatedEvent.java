@@ -0,0 +1,10 @@
+package com.example.weather.stream;
+
+import com.example.weather.model.response.WeatherResponse;
+
+/**
+ * Published by {@code WeatherLoader} whenever a value enters the weather cache for a key: a first load, a reload
+ * after expiry or a refresh-ahead reload.
+ */
+public record WeatherUpdatedEvent(String key, WeatherResponse response) {
+}
@@ -1,16 +1,23 @@
 package com.example.weather.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 public class JWTUtil {
 
@@ -18,14 +25,51 @@ public class JWTUtil {
     private static final long EXPIRATION_TIME = 1000 * 60 * 15; // 15 minutes
     private static final String ALGORITHM = "HmacSHA256";
     private static final byte[] SECRET = generateSecretKey();
+    private static final SecretKey SIGNING_KEY = new SecretKeySpec(SECRET, ALGORITHM);
+
+    // JwtParser is immutable and thread-safe, so one instance serves every request
+    private static final JwtParser PARSER = Jwts.parserBuilder().setSigningKey(SIGNING_KEY).build();
+
+    // Tokens that already passed verification, keyed by digest; each entry lives exactly until the token's exp
+    private static final int MAX_VERIFIED_TOKENS = 10_000;
+    private static final Cache<String, VerifiedToken> VERIFIED_TOKENS = Caffeine.newBuilder()
+            .maximumSize(MAX_VERIFIED_TOKENS)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                    return token.nanosToExpiry();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return token.nanosToExpiry();
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    private record VerifiedToken(String subject, long expiresAtMillis) {
+        long nanosToExpiry() {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+    }
 
     // Generate a random secret key using KeyGenerator (HmacSHA256)
     public static String generateToken(String username) {
+        return generateToken(username, EXPIRATION_TIME);
+    }
+
+    // Package-private for JWTUtilTest, which needs already-expired tokens and can't sign its own without the key
+    static String generateToken(String username, long expirationMillis) {
         return Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(new SecretKeySpec(SECRET, ALGORITHM), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
+                .signWith(SIGNING_KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -36,25 +80,44 @@ public class JWTUtil {
         return key;
     }
 
-    // Validate JWT token
+    // Validate JWT token; a token seen before is answered from the verified cache without re-checking the signature
     public static String validateToken(String token) {
+        String digest = digest(token);
+        VerifiedToken verified = VERIFIED_TOKENS.getIfPresent(digest);
+        if (verified != null && verified.expiresAtMillis() > System.currentTimeMillis()) {
+            return verified.subject();
+        }
+
+        Claims claims = verify(token);
+        if (claims == null) {
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        // a token without exp never expires, so it is not worth pinning in the cache
+        if (expiration != null) {
+            VERIFIED_TOKENS.put(digest, new VerifiedToken(claims.getSubject(), expiration.getTime()));
+        }
+        return claims.getSubject();
+    }
+
+    // Full signature and claims check; null for a token that is tampered with, expired or malformed
+    private static Claims verify(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(new SecretKeySpec(SECRET, ALGORITHM))
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (JwtException e) {
+            return PARSER.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }
+
+    // Package-private for JWTUtilTest; whether a token was cached can't be seen through validateToken
+    static long verifiedTokenCount() {
+        VERIFIED_TOKENS.cleanUp();
+        return VERIFIED_TOKENS.estimatedSize();
+    }
+
     // Extract username from JWT token
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET)
-                .build()
-                .parseClaimsJws(token)
+        return PARSER.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
@@ -66,11 +129,18 @@ public class JWTUtil {
 
     // Extract expiration date from JWT token
     public Date extractExpiration(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET)
-                .build()
-                .parseClaimsJws(token)
+        return PARSER.parseClaimsJws(token)
                 .getBody()
                 .getExpiration();
     }
+
+    // The raw token is never kept in memory, only its SHA-256; UTF-8, so distinct non-ASCII garbage isn't folded to '?'
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
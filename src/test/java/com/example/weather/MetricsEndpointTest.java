@@ -0,0 +1,38 @@
+package com.example.weather;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// exporters are switched off in tests unless asked for
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MetricsEndpointTest {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Test
+	void prometheusScrapeIsOpenAndCarriesTheServiceMeters() {
+		ResponseEntity<String> scrape = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+		assertEquals(HttpStatus.OK, scrape.getStatusCode());
+		String body = scrape.getBody();
+		assertNotNull(body);
+		assertTrue(body.contains("cache_gets_total{") && body.contains("cache=\"weather\""), "caffeine stats");
+		assertTrue(body.contains("weather_requests_seconds_bucket{"), "request timer histogram");
+		assertTrue(body.contains("weather_upstream_concurrency_limit{") && body.contains("upstream=\"open-meteo\""), "upstream scheduler gauges");
+	}
+
+	@Test
+	void healthIsOpenButTheRestOfActuatorIsNot() {
+		assertEquals(HttpStatus.OK, restTemplate.getForEntity("/actuator/health", String.class).getStatusCode());
+		assertEquals(HttpStatus.FORBIDDEN, restTemplate.getForEntity("/actuator/env", String.class).getStatusCode());
+	}
+}
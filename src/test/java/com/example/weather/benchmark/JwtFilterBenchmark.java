@@ -0,0 +1,84 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.filter.JwtAuthenticationFilter;
+import com.example.weather.utils.JWTUtil;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link JwtAuthenticationFilter} and {@link JWTUtil#validateToken} for a client re-sending the
+ * same bearer token, and the cost of a full signature check when the token has not been seen yet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private String token;
+    private MockHttpServletRequest request;
+    private JwtParser uncachedParser;
+    private String uncachedToken;
+
+    @Setup
+    public void createToken() {
+        token = JWTUtil.generateToken("admin");
+        request = new MockHttpServletRequest("GET", "/api/v1/weather");
+        request.addHeader("Authorization", "Bearer " + token);
+
+        // JWTUtil's key is private, so the uncached check gets a key and token of its own, signed the same way
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        SecretKey key = new SecretKeySpec(secret, "HmacSHA256");
+        uncachedParser = Jwts.parserBuilder().setSigningKey(key).build();
+        uncachedToken = Jwts.builder()
+                .setSubject("admin")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(15)))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public Object filterRepeatToken() throws IOException, ServletException {
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    @Benchmark
+    public String validateToken() {
+        return JWTUtil.validateToken(token);
+    }
+
+    // What every request used to pay: signature check and claims parsing, now only on a verified-cache miss
+    @Benchmark
+    public String verifyWithoutCache() {
+        return uncachedParser.parseClaimsJws(uncachedToken).getBody().getSubject();
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.WeatherApplication;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.utils.JWTUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offline load test: the application against a {@link FakeUpstreamServer} standing in for Nominatim and Open-Meteo,
+ * driven by an open-model generator.
+ * <p>
+ * Requests arrive as a Poisson process at {@code load.rps}, whether or not earlier ones have completed, and each asks
+ * for a zip code drawn from {@code load.keys} keys with a zipf({@code load.zipfExponent}) popularity, so a few zip
+ * codes are hot and most are rare. Latency is measured from when a request was due, not from when it was sent, so a
+ * stalled server shows up in the percentiles instead of slowing the generator down. The stub's latency, error rate and
+ * rate limit are configurable.
+ * <p>
+ * Reports throughput, p50/p99/p999 latency, status counts, the weather cache hit ratio and the calls each upstream
+ * received. With {@code load.maxP99Millis}, {@code load.minHitRatio} or {@code load.maxErrorRate} set, a run outside
+ * them exits with status 1, which fails the build.
+ * <p>
+ * {@code mvn -Ploadtest verify [-Dload.rps=200] [-Dload.durationSeconds=30] [-Dload.upstreamLatencyMillis=50]}
+ */
+public class OfflineLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        System.out.printf(Locale.ROOT, "Java %s, %s%n", Runtime.version(), settings);
+
+        boolean passed;
+        try (FakeUpstreamServer upstream = new FakeUpstreamServer()) {
+            upstream.delayResponses(settings.upstreamLatencyMillis);
+            upstream.failRandomly(settings.upstreamErrorRate);
+            upstream.rateLimitPerSecond(settings.upstreamRateLimit);
+            passed = run(settings, upstream);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean run(Settings settings, FakeUpstreamServer upstream) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("weather.api.url", upstream.weatherUrl());
+        properties.put("geo.api.url", upstream.geoUrl());
+        // a cold start every run, so runs are comparable; the load comes from one subject, so no per-caller quota
+        properties.put("cache.weather.store-path", "");
+        properties.put("cache.geocoding.store-path", "");
+        properties.put("quota.enabled", false);
+        properties.put("upstream.http.http2-enabled", false);
+        properties.put("logging.level.root", "WARN");
+        if (!settings.pacing) {
+            // the configured pacing is for the public APIs; the stub takes whatever it is configured to take
+            for (String lane : new String[]{"nominatim", "open-meteo"}) {
+                properties.put("upstream.pacing.lanes." + lane + ".rate-per-second", 100_000);
+                properties.put("upstream.pacing.lanes." + lane + ".max-queued", 10_000);
+                properties.put("upstream.pacing.lanes." + lane + ".max-concurrency", 256);
+            }
+        }
+
+        String[] args = properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WeatherApplication.class)
+                .profiles("test")
+                .run(args);
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String token = JWTUtil.generateToken("admin");
+            ZipfKeys keys = new ZipfKeys(settings.keys, settings.zipfExponent);
+            SplittableRandom random = new SplittableRandom(settings.seed);
+
+            // warm-up also fills the cache, so the measured phase sees the steady-state hit ratio
+            generate(client, baseUrl, token, keys, random, settings.rps, settings.warmupSeconds);
+
+            Map<String, Long> requestsBefore = requestsByCache(registry);
+            int geoBefore = upstream.geoCalls();
+            int weatherBefore = upstream.weatherCalls();
+            int rateLimitedBefore = upstream.rateLimitedCalls();
+            int failedBefore = upstream.failedCalls();
+            Result result = generate(client, baseUrl, token, keys, random, settings.rps, settings.durationSeconds);
+            Map<String, Long> requests = requestsByCache(registry);
+            requests.replaceAll((cache, count) -> count - requestsBefore.getOrDefault(cache, 0L));
+
+            long served = requests.values().stream().mapToLong(Long::longValue).sum();
+            double hitRatio = served == 0 ? 0 : requests.getOrDefault("hit", 0L) / (double) served;
+            double errorRate = result.count == 0 ? 0 : result.errors() / (double) result.count;
+            System.out.printf(Locale.ROOT,
+                    "%d requests in %d ms, %.1f req/s | p50 %.1f ms | p99 %.1f ms | p999 %.1f ms | max %.1f ms | late dispatch max %.1f ms%n",
+                    result.count, result.wallMillis, result.count * 1000.0 / result.wallMillis,
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9),
+                    result.percentileMillis(100), result.maxLateMicros / 1000.0);
+            System.out.printf(Locale.ROOT, "statuses %s | error rate %.4f | weather cache %s, hit ratio %.3f%n",
+                    result.statuses, errorRate, requests, hitRatio);
+            System.out.printf(Locale.ROOT, "upstream calls: nominatim %d, open-meteo %d, rate limited %d, failed %d%n",
+                    upstream.geoCalls() - geoBefore, upstream.weatherCalls() - weatherBefore,
+                    upstream.rateLimitedCalls() - rateLimitedBefore, upstream.failedCalls() - failedBefore);
+
+            List<String> violations = new ArrayList<>();
+            if (settings.maxP99Millis > 0 && result.percentileMillis(99) > settings.maxP99Millis) {
+                violations.add(String.format(Locale.ROOT, "p99 %.1f ms > %d ms", result.percentileMillis(99), settings.maxP99Millis));
+            }
+            if (hitRatio < settings.minHitRatio) {
+                violations.add(String.format(Locale.ROOT, "hit ratio %.3f < %.3f", hitRatio, settings.minHitRatio));
+            }
+            if (errorRate > settings.maxErrorRate) {
+                violations.add(String.format(Locale.ROOT, "error rate %.4f > %.4f", errorRate, settings.maxErrorRate));
+            }
+            System.out.println(violations.isEmpty() ? "PASSED" : "FAILED: " + String.join(", ", violations));
+            return violations.isEmpty();
+        } finally {
+            context.close();
+        }
+    }
+
+    // Sends requests on a Poisson schedule for the given time and waits for the stragglers
+    private static Result generate(HttpClient client, String baseUrl, String token, ZipfKeys keys, SplittableRandom random,
+                                   int rps, int seconds) throws Exception {
+        int expected = (int) Math.min(Integer.MAX_VALUE - 8, (long) rps * seconds * 2 + 16);
+        long[] latencies = new long[expected];
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / (double) rps;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long due = start;
+        long maxLate = 0;
+        int count = 0;
+        while (count < expected) {
+            due += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (due - end >= 0) {
+                break;
+            }
+            long now;
+            while ((now = System.nanoTime()) - due < 0) {
+                LockSupport.parkNanos(due - now);
+            }
+            maxLate = Math.max(maxLate, now - due);
+            int index = count++;
+            long intended = due;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(
+                            baseUrl + "/api/v1/weather?zipCode=" + keys.next(random) + "&countrycodes=us"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        latencies[index] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+                        // -1 counts requests that got no response at all
+                        statuses.computeIfAbsent(error != null ? -1 : response.statusCode(), status -> new AtomicInteger()).incrementAndGet();
+                        return null;
+                    }));
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("Some requests were still outstanding after 60 s; they are counted as 0 ms");
+        }
+        Map<Integer, Integer> statusCounts = new TreeMap<>();
+        statuses.forEach((status, n) -> statusCounts.put(status, n.get()));
+        return new Result(count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Arrays.copyOf(latencies, count),
+                statusCounts, TimeUnit.NANOSECONDS.toMicros(maxLate));
+    }
+
+    private static Map<String, Long> requestsByCache(MeterRegistry registry) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Timer timer : registry.find("weather.requests").timers()) {
+            counts.merge(timer.getId().getTag("cache"), timer.count(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Zip codes ranked by popularity, rank k drawn with probability proportional to 1/k^s.
+     */
+    static final class ZipfKeys {
+        private final double[] cumulative;
+
+        ZipfKeys(int keys, double exponent) {
+            cumulative = new double[keys];
+            double sum = 0;
+            for (int k = 1; k <= keys; k++) {
+                sum += 1 / Math.pow(k, exponent);
+                cumulative[k - 1] = sum;
+            }
+            for (int i = 0; i < keys; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        String next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+            // never all zeros, which the stub geocoder treats as unknown
+            return String.format(Locale.ROOT, "%06d", rank + 1);
+        }
+    }
+
+    private record Result(int count, long wallMillis, long[] latencyMicros, Map<Integer, Integer> statuses, long maxLateMicros) {
+        double percentileMillis(double p) {
+            if (latencyMicros.length == 0) {
+                return 0;
+            }
+            long[] sorted = latencyMicros.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+        }
+
+        long errors() {
+            return statuses.entrySet().stream().filter(e -> e.getKey() != 200).mapToLong(Map.Entry::getValue).sum();
+        }
+    }
+
+    private record Settings(int rps, int durationSeconds, int warmupSeconds, int keys, double zipfExponent, long seed,
+                            long upstreamLatencyMillis, double upstreamErrorRate, int upstreamRateLimit, boolean pacing,
+                            long maxP99Millis, double minHitRatio, double maxErrorRate) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("load.rps", 200),
+                    Integer.getInteger("load.durationSeconds", 30),
+                    Integer.getInteger("load.warmupSeconds", 10),
+                    Integer.getInteger("load.keys", 5000),
+                    Double.parseDouble(System.getProperty("load.zipfExponent", "1.0")),
+                    Long.getLong("load.seed", 42),
+                    Long.getLong("load.upstreamLatencyMillis", 50),
+                    Double.parseDouble(System.getProperty("load.upstreamErrorRate", "0")),
+                    Integer.getInteger("load.upstreamRateLimit", 0),
+                    Boolean.getBoolean("load.pacing"),
+                    // 0 and the bounds below leave the gate off
+                    Long.getLong("load.maxP99Millis", 0),
+                    Double.parseDouble(System.getProperty("load.minHitRatio", "0")),
+                    Double.parseDouble(System.getProperty("load.maxErrorRate", "1")));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.clients.UpstreamJsonParser;
+import com.example.weather.model.response.ProjectedWeather;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writing a {@link WeatherResponse} as the controller does, with the ObjectMapper Spring MVC builds by default: the
+ * full body, a {@code fields=currentTemp} projection, and either of them gzipped as Tomcat compresses responses.
+ * The extended forecast is the daily block of the recorded Open-Meteo fixture. {@link #main} prints the payload sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResponseSerializationBenchmark {
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private WeatherResponse response;
+    private ProjectedWeather currentTempOnly;
+
+    @Setup
+    public void loadResponse() throws IOException {
+        try (InputStream in = ResponseSerializationBenchmark.class.getResourceAsStream("/fixtures/open-meteo-forecast.json")) {
+            response = UpstreamJsonParser.parseForecast(new ByteArrayInputStream(in.readAllBytes())).withFromCache(true);
+        }
+        currentTempOnly = new ProjectedWeather(response, EnumSet.of(ProjectedWeather.Field.CURRENT_TEMP));
+    }
+
+    @Benchmark
+    public byte[] weatherResponseToJson() throws IOException {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] currentTempProjectionToJson() throws IOException {
+        return project(currentTempOnly);
+    }
+
+    @Benchmark
+    public byte[] weatherResponseToGzippedJson() throws IOException {
+        return gzip(mapper.writeValueAsBytes(response));
+    }
+
+    @Benchmark
+    public byte[] currentTempProjectionToGzippedJson() throws IOException {
+        return gzip(project(currentTempOnly));
+    }
+
+    private byte[] project(ProjectedWeather projected) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        try (JsonGenerator json = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            projected.writeTo(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    // Bytes on the wire for each variant
+    public static void main(String[] args) throws IOException {
+        ResponseSerializationBenchmark benchmark = new ResponseSerializationBenchmark();
+        benchmark.loadResponse();
+        System.out.printf("full:                 %5d bytes%n", benchmark.weatherResponseToJson().length);
+        System.out.printf("full, gzip:           %5d bytes%n", benchmark.weatherResponseToGzippedJson().length);
+        System.out.printf("currentTemp:          %5d bytes%n", benchmark.currentTempProjectionToJson().length);
+        System.out.printf("currentTemp, gzip:    %5d bytes%n", benchmark.currentTempProjectionToGzippedJson().length);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.support.FakeUpstreamServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time from launching the application to its first successful {@code /api/v1/weather} answer, which is what a replica
+ * added under load makes callers wait for.
+ * <p>
+ * Each argument is a variant, {@code label=<java arguments>} split on whitespace, for example
+ * {@code baseline=-jar target/demo-0.0.1-SNAPSHOT.jar}. Every run starts the variant as a fresh JVM against a
+ * {@link FakeUpstreamServer}, with no disk tier to restore from, logs in as soon as it listens (tokens are signed with
+ * a key each JVM makes up) and polls the endpoint until it answers 200. Variants
+ * take turns so that drift on the machine affects them alike, and the first {@code startup.warmupRuns} of each are
+ * not counted, since they mostly measure a cold page cache.
+ * <p>
+ * {@code mvn -Pfaststart verify [-Dstartup.runs=10]}
+ */
+public class StartupBenchmark {
+
+    private static final String ZIP_CODE = "10001";
+    private static final String CREDENTIALS = "{\"username\":\"admin\",\"password\":\"password123\"}";
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: StartupBenchmark label=<java arguments>...");
+        }
+        int runs = Integer.getInteger("startup.runs", 5);
+        int warmupRuns = Integer.getInteger("startup.warmupRuns", 1);
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(Long.getLong("startup.timeoutSeconds", 60));
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            variants.put(arg.substring(0, separator), List.of(arg.substring(separator + 1).trim().split("\\s+")));
+        }
+        System.out.printf(Locale.ROOT, "Java %s, %d runs (+%d warm-up) of %s%n", Runtime.version(), runs, warmupRuns, variants.keySet());
+
+        Map<String, long[]> results = new LinkedHashMap<>();
+        variants.keySet().forEach(label -> results.put(label, new long[runs]));
+        try (FakeUpstreamServer upstream = new FakeUpstreamServer()) {
+            for (int run = -warmupRuns; run < runs; run++) {
+                for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                    long millis = timeToFirstAnswer(variant.getKey(), variant.getValue(), upstream, timeoutMillis);
+                    if (run >= 0) {
+                        results.get(variant.getKey())[run] = millis;
+                    }
+                }
+            }
+        }
+
+        long baseline = -1;
+        for (Map.Entry<String, long[]> result : results.entrySet()) {
+            long[] sorted = result.getValue().clone();
+            Arrays.sort(sorted);
+            long median = sorted[sorted.length / 2];
+            String relative = baseline < 0 ? "" : String.format(Locale.ROOT, " | %.2fx the first variant", median / (double) baseline);
+            System.out.printf(Locale.ROOT, "%-12s first answer in min %d ms | median %d ms | max %d ms%s%n",
+                    result.getKey(), sorted[0], median, sorted[sorted.length - 1], relative);
+            if (baseline < 0) {
+                baseline = median;
+            }
+        }
+    }
+
+    private static long timeToFirstAnswer(String label, List<String> javaArguments, FakeUpstreamServer upstream,
+                                          long timeoutMillis) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(javaArguments);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--weather.api.url=" + upstream.weatherUrl(),
+                "--geo.api.url=" + upstream.geoUrl(),
+                // a cold start every run, with nothing to restore from disk
+                "--cache.weather.store-path=",
+                "--cache.geocoding.store-path=",
+                "--upstream.http.http2-enabled=false",
+                "--logging.level.root=WARN"));
+        Path log = Files.createTempFile("startup-" + label + "-", ".log");
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        String baseUrl = "http://localhost:" + port + "/api/v1";
+        HttpRequest login = HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString(CREDENTIALS))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        boolean answered = false;
+        try {
+            String token = null;
+            while (true) {
+                try {
+                    if (token == null) {
+                        Matcher matcher = TOKEN.matcher(client.send(login, HttpResponse.BodyHandlers.ofString()).body());
+                        token = matcher.find() ? matcher.group(1) : null;
+                    }
+                    if (token != null && client.send(weather(baseUrl, token), HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        answered = true;
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException notListeningYet) {
+                    // the connector isn't up yet
+                }
+                if (!process.isAlive() || TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > timeoutMillis) {
+                    throw new IllegalStateException(label + " did not answer within " + timeoutMillis + " ms, see " + log);
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            // a failed start keeps its output for the message above
+            if (answered) {
+                Files.deleteIfExists(log);
+            }
+        }
+    }
+
+    private static HttpRequest weather(String baseUrl, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/weather?zipCode=" + ZIP_CODE + "&countrycodes=us"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
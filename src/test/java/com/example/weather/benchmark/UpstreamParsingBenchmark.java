@@ -0,0 +1,90 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.clients.UpstreamJsonParser;
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing cost per upstream response: the old JsonNode tree (WeatherService) and org.json (the clients)
+ * against {@link UpstreamJsonParser}. Run with {@code -prof gc} and compare gc.alloc.rate.norm (bytes/op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpstreamParsingBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private byte[] forecast;
+    private byte[] place;
+
+    @Setup
+    public void loadFixtures() throws IOException {
+        forecast = fixture("open-meteo-forecast.json");
+        place = fixture("nominatim-search.json");
+    }
+
+    @Benchmark
+    public WeatherResponse forecastJsonNodeTree() throws IOException {
+        JsonNode body = MAPPER.readTree(new ByteArrayInputStream(forecast));
+        return new WeatherResponse(body.get("current_weather").get("temperature").asDouble(),
+                body.get("daily").get("temperature_2m_max").get(0).asDouble(),
+                body.get("daily").get("temperature_2m_min").get(0).asDouble(),
+                body.get("daily").toString(), false);
+    }
+
+    @Benchmark
+    public WeatherResponse forecastOrgJson() {
+        JSONObject json = new JSONObject(new String(forecast, StandardCharsets.UTF_8));
+        JSONObject daily = json.getJSONObject("daily");
+        return new WeatherResponse(json.getJSONObject("current_weather").getDouble("temperature"),
+                daily.getJSONArray("temperature_2m_max").getDouble(0),
+                daily.getJSONArray("temperature_2m_min").getDouble(0),
+                daily.toString(), false);
+    }
+
+    @Benchmark
+    public WeatherResponse forecastStreaming() throws IOException {
+        return UpstreamJsonParser.parseForecast(new ByteArrayInputStream(forecast));
+    }
+
+    @Benchmark
+    public Coordinates placeJsonNodeTree() throws IOException {
+        JsonNode first = MAPPER.readTree(new ByteArrayInputStream(place)).get(0);
+        return new Coordinates(first.get("lat").asDouble(), first.get("lon").asDouble());
+    }
+
+    @Benchmark
+    public Coordinates placeOrgJson() {
+        JSONObject first = new JSONArray(new String(place, StandardCharsets.UTF_8)).getJSONObject(0);
+        return new Coordinates(first.getDouble("lat"), first.getDouble("lon"));
+    }
+
+    @Benchmark
+    public Coordinates placeStreaming() throws IOException {
+        return UpstreamJsonParser.parseFirstPlace(new ByteArrayInputStream(place));
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = UpstreamParsingBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.weather.benchmark;
+
+import com.example.weather.WeatherApplication;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.utils.JWTUtil;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Platform vs virtual threads under a burst of concurrent cache misses against a slow upstream.
+ * <p>
+ * Starts the application twice in this JVM, once per mode, against a {@link FakeUpstreamServer} that holds every
+ * response back, and fires {@code concurrency} simultaneous GET /api/v1/weather requests for distinct zip codes.
+ * Each request therefore makes two sequential slow upstream calls. Needs a Java 21 runtime for the virtual run.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec@load-comparison [-Dload.concurrency=2000] [-Dload.upstreamDelayMillis=1000]}
+ */
+public class VirtualThreadLoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long upstreamDelayMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        boolean virtualSupported = Runtime.version().feature() >= 21;
+
+        try (FakeUpstreamServer upstream = new FakeUpstreamServer()) {
+            upstream.delayResponses(upstreamDelayMillis);
+            System.out.printf(Locale.ROOT, "Java %s, %d concurrent requests, upstream delay %d ms per call%n",
+                    Runtime.version(), concurrency, upstreamDelayMillis);
+
+            run("platform", false, upstream, concurrency);
+            if (virtualSupported) {
+                run("virtual", true, upstream, concurrency);
+            } else {
+                System.out.println("virtual: skipped, needs Java 21");
+            }
+        }
+    }
+
+    private static void run(String mode, boolean virtual, FakeUpstreamServer upstream, int concurrency) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.threads.virtual.enabled", virtual);
+        properties.put("weather.api.url", upstream.weatherUrl());
+        properties.put("geo.api.url", upstream.geoUrl());
+        properties.put("cache.geocoding.store-path", "");
+        // every request must be a real miss: no grid sharing, no refresh, nothing left on disk by an earlier run
+        properties.put("cache.grid.enabled", false);
+        properties.put("cache.weather.refresh-after-write-minutes", 0);
+        properties.put("cache.weather.store-path", "");
+        properties.put("upstream.http.http2-enabled", false);
+        properties.put("upstream.http.max-connections-per-host", concurrency * 2);
+        properties.put("upstream.http.read-timeout-millis", 60_000);
+        properties.put("upstream.http.total-timeout-millis", 120_000);
+        properties.put("server.tomcat.max-connections", concurrency * 2);
+        properties.put("server.tomcat.accept-count", concurrency);
+        properties.put("logging.level.root", "WARN");
+        // the comparison is about threads, not about the configured upstream pacing
+        for (String lane : new String[]{"nominatim", "open-meteo"}) {
+            properties.put("upstream.pacing.lanes." + lane + ".rate-per-second", 100_000);
+            properties.put("upstream.pacing.lanes." + lane + ".max-queued", concurrency * 10);
+            properties.put("upstream.pacing.lanes." + lane + ".initial-concurrency", concurrency * 2);
+            properties.put("upstream.pacing.lanes." + lane + ".max-concurrency", concurrency * 2);
+        }
+        properties.put("upstream.pacing.max-queue-wait-millis", 120_000);
+
+        // as command-line arguments, so they win over application-test.properties
+        String[] args = properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WeatherApplication.class)
+                .profiles("test")
+                .run(args);
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            String token = JWTUtil.generateToken("admin");
+
+            // warm-up round so class loading and JIT are not billed to either mode
+            burst(client, baseUrl, token, "W", Math.min(200, concurrency));
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            int calls = upstream.weatherCalls();
+            Result result = burst(client, baseUrl, token, mode.substring(0, 1).toUpperCase(Locale.ROOT), concurrency);
+
+            System.out.printf(Locale.ROOT,
+                    "%-8s wall %6d ms | %7.1f req/s | p50 %6d ms | p90 %6d ms | p99 %6d ms | max %6d ms | non-200 %d | upstream forecast calls %d | peak platform threads %d%n",
+                    mode, result.wallMillis, result.count * 1000.0 / result.wallMillis,
+                    result.percentile(50), result.percentile(90), result.percentile(99), result.percentile(100),
+                    result.failures, upstream.weatherCalls() - calls, threads.getPeakThreadCount());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result burst(HttpClient client, String baseUrl, String token, String zipPrefix, int count) {
+        long[] latencies = new long[count];
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(
+                            String.format(Locale.ROOT, "%s/api/v1/weather?zipCode=%s%05d&countrycodes=us", baseUrl, zipPrefix, i + 1)))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofMinutes(2))
+                    .GET()
+                    .build();
+            long sent = System.nanoTime();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        latencies[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        return new Result(count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), latencies, failures.get());
+    }
+
+    private record Result(int count, long wallMillis, long[] latencies, int failures) {
+        long percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
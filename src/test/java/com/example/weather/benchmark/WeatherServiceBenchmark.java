@@ -0,0 +1,64 @@
+package com.example.weather.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache-hit {@code WeatherService.getWeather}: cache key, the single-flight lookup, the hit bookkeeping and the
+ * request timer. The cache is primed once from a local {@link FakeUpstreamServer}.
+ * <p>
+ * stdout goes to a null stream and logging is at WARN, so stray prints and log calls are paid for but nothing is written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WeatherServiceBenchmark {
+
+    private final WeatherRequest request = new WeatherRequest("10001", "us");
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void primeCache() throws IOException {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream);
+        if (fixture.weatherService.getWeather(request) == null) {
+            throw new IllegalStateException("Priming the weather cache failed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        fixture.close();
+        upstream.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public WeatherResponse cacheHit() {
+        return fixture.weatherService.getWeather(request);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.weather.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> THREE = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void keysAreSpreadEvenlyAndEveryReplicaAgrees() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE, 160);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 160);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            String key = String.format("%05d_us", i);
+            assertEquals(ring.owner(key), reordered.owner(key));
+            owned.merge(ring.owner(key), 1, Integer::sum);
+        }
+        assertEquals(3, owned.size());
+        owned.values().forEach(count -> assertTrue(count > 8_000 && count < 12_000, "owned " + owned));
+    }
+
+    @Test
+    void addingAReplicaOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(THREE, 160);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < 30_000; i++) {
+            String key = String.format("%05d_us", i);
+            if (!before.owner(key).equals(after.owner(key))) {
+                assertEquals("http://d:8080", after.owner(key));
+                moved++;
+            }
+        }
+        assertTrue(moved > 5_000 && moved < 10_000, "moved " + moved);
+    }
+}
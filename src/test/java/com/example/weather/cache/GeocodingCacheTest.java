@@ -0,0 +1,88 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.CacheConfig;
+import com.example.weather.config.GeocodingCacheProperties;
+import com.example.weather.model.request.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodingCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entriesSurviveRestart() throws Exception {
+        Path store = dir.resolve("geocoding.bin");
+
+        GeocodingCache first = newCache(store);
+        first.loadFromDisk();
+        first.put("10001", "US", new Coordinates(40.7128, -74.0060));
+        first.put("sw1a 1aa", "gb", new Coordinates(51.501, -0.1416));
+        first.close();
+
+        GeocodingCache restarted = newCache(store);
+        restarted.loadFromDisk();
+
+        assertEquals(new Coordinates(40.7128, -74.0060), restarted.get("10001", "us"));
+        assertEquals(new Coordinates(51.501, -0.1416), restarted.get("SW1A1AA", "GB"));
+        assertNull(restarted.get("10001", null));
+    }
+
+    @Test
+    void tornTailIsDiscardedOnStartup() throws Exception {
+        Path store = dir.resolve("geocoding.bin");
+
+        GeocodingCache first = newCache(store);
+        first.put("10001", "US", new Coordinates(40.7128, -74.0060));
+        first.close();
+        long intactLength = Files.size(store);
+        // simulate a crash part-way through the next append
+        Files.write(store, new byte[]{0, 5, 'u', 's', ':'}, StandardOpenOption.APPEND);
+
+        GeocodingCache restarted = newCache(store);
+        restarted.loadFromDisk();
+
+        assertEquals(new Coordinates(40.7128, -74.0060), restarted.get("10001", "US"));
+        assertEquals(intactLength, Files.size(store));
+
+        restarted.put("94105", "US", new Coordinates(37.789, -122.394));
+        restarted.close();
+        assertEquals(2, new GeocodingDiskStore(store).readAll().size());
+    }
+
+    @Test
+    void expiredRecordsAreDroppedAndCompactedAway() throws Exception {
+        Path store = dir.resolve("geocoding.bin");
+        long now = System.currentTimeMillis();
+        GeocodingDiskStore disk = new GeocodingDiskStore(store);
+        disk.append(new GeocodingDiskStore.Entry("us:10001", 1, 1, now - TimeUnit.DAYS.toMillis(31)));
+        disk.append(new GeocodingDiskStore.Entry("us:10002", 2, 2, now - TimeUnit.DAYS.toMillis(1)));
+        disk.append(new GeocodingDiskStore.Entry("us:10002", 3, 3, now));
+        disk.close();
+
+        GeocodingCache cache = newCache(store);
+        cache.loadFromDisk();
+
+        assertNull(cache.get("10001", "US"));
+        assertEquals(new Coordinates(3, 3), cache.get("10002", "US"));
+        List<GeocodingDiskStore.Entry> remaining = new GeocodingDiskStore(store).readAll();
+        assertEquals(1, remaining.size());
+    }
+
+    private static GeocodingCache newCache(Path store) {
+        GeocodingCacheProperties properties = new GeocodingCacheProperties();
+        properties.setExpireAfterWriteDays(30);
+        properties.setMaximumSize(100);
+        properties.setStorePath(store.toString());
+        return new GeocodingCache(new CacheConfig().geocodingCaffeineCache(properties), properties);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.weather.cache;
+
+import com.example.weather.WeatherApplication;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.utils.JWTUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two replicas on localhost sharing one weather cache, against one stub upstream.
+ */
+class PeerWeatherCacheTest {
+
+    private static final int ZIP_CODES = 10;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String token = JWTUtil.generateToken("admin");
+    private FakeUpstreamServer upstream;
+    private String[] urls;
+    private ConfigurableApplicationContext[] replicas;
+
+    @BeforeEach
+    void startReplicas() throws IOException {
+        upstream = new FakeUpstreamServer();
+        int[] ports = {freePort(), freePort()};
+        urls = new String[]{"http://localhost:" + ports[0], "http://localhost:" + ports[1]};
+        replicas = new ConfigurableApplicationContext[]{start(ports[0], urls[0]), start(ports[1], urls[1])};
+    }
+
+    @AfterEach
+    void stopReplicas() {
+        for (ConfigurableApplicationContext replica : replicas) {
+            if (replica != null && replica.isActive()) {
+                replica.close();
+            }
+        }
+        upstream.close();
+    }
+
+    @Test
+    void onlyTheOwnerGoesUpstreamAndOtherReplicasKeepAHotCopy() throws Exception {
+        for (int i = 1; i <= ZIP_CODES; i++) {
+            assertEquals(200, weather(urls[0], zip(i)));
+            assertEquals(200, weather(urls[1], zip(i)));
+        }
+
+        // each zip code reached Nominatim and Open-Meteo once, through its owner, whichever replica was asked first
+        assertEquals(ZIP_CODES, upstream.geoCalls());
+        assertEquals(ZIP_CODES, upstream.weatherCalls());
+        assertEquals(ZIP_CODES, peerFetches("hit"));
+
+        // and the replica that asked keeps the answer, so asking again goes nowhere
+        for (int i = 1; i <= ZIP_CODES; i++) {
+            assertEquals(200, weather(urls[0], zip(i)));
+            assertEquals(200, weather(urls[1], zip(i)));
+        }
+        assertEquals(ZIP_CODES, peerFetches("hit"));
+        assertEquals(ZIP_CODES, upstream.weatherCalls());
+    }
+
+    @Test
+    void keysOfAReplicaThatIsDownAreFetchedUpstreamLocally() throws Exception {
+        replicas[1].close();
+        PeerWeatherCache peers = replicas[0].getBean(PeerWeatherCache.class);
+        List<String> ownedByDown = new ArrayList<>();
+        for (int i = 1; ownedByDown.size() < 3; i++) {
+            if (urls[1].equals(peers.remoteOwner(zip(i) + "_us"))) {
+                ownedByDown.add(zip(i));
+            }
+        }
+
+        for (String zip : ownedByDown) {
+            assertEquals(200, weather(urls[0], zip));
+        }
+        assertEquals(ownedByDown.size(), upstream.weatherCalls());
+        assertEquals(ownedByDown.size(), peerFetches("error"));
+    }
+
+    @Test
+    void peerEndpointRefusesCallersWithoutTheSecret() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(urls[0] + PeerWeatherCache.PATH + "?zipCode=10001&countrycodes=us")).build();
+
+        assertEquals(403, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(0, upstream.geoCalls());
+    }
+
+    private ConfigurableApplicationContext start(int port, String self) {
+        return new SpringApplicationBuilder(WeatherApplication.class)
+                .profiles("test")
+                .run("--server.port=" + port,
+                        "--weather.api.url=" + upstream.weatherUrl(),
+                        "--geo.api.url=" + upstream.geoUrl(),
+                        "--cache.weather.store-path=",
+                        "--cache.geocoding.store-path=",
+                        "--cache.grid.enabled=false",
+                        "--quota.enabled=false",
+                        "--cache.peers.enabled=true",
+                        "--cache.peers.self=" + self,
+                        "--cache.peers.members=" + urls[0] + "," + urls[1],
+                        "--cache.peers.secret=test-peer-secret",
+                        "--logging.level.root=WARN");
+    }
+
+    private int weather(String baseUrl, String zip) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/weather?zipCode=" + zip + "&countrycodes=us"))
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private long peerFetches(String outcome) {
+        long total = 0;
+        for (ConfigurableApplicationContext replica : replicas) {
+            if (replica.isActive()) {
+                Counter counter = replica.getBean(MeterRegistry.class).find("weather.peer.fetches").tag("outcome", outcome).counter();
+                total += counter == null ? 0 : (long) counter.count();
+            }
+        }
+        return total;
+    }
+
+    private static String zip(int i) {
+        return String.format("%05d", 20000 + i);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
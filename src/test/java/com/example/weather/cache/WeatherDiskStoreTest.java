@@ -0,0 +1,167 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherDiskStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entriesSurviveReopen() throws Exception {
+        Path file = dir.resolve("weather.bin");
+        long now = System.currentTimeMillis();
+
+        WeatherDiskStore first = open(file, 64 * 1024);
+        first.put(entry("10001_US", 21.5, "{\"time\":[\"2024-01-01\"]}", now - 1000));
+        first.put(entry("94105_US", 14.0, null, now));
+        first.put(entry("10001_US", 22.0, "{}", now));
+        DailyForecast daily = new DailyForecast(LocalDate.of(2026, 10, 18).toEpochDay(), new float[]{24.1f, Float.NaN}, new float[]{15.2f, 14.8f});
+        first.put(new WeatherDiskStore.Entry("60601_US", new WeatherResponse(3.5, 24.1, 15.2, daily, false), now));
+        first.close();
+
+        WeatherDiskStore reopened = open(file, 64 * 1024);
+        assertEquals(3, reopened.size());
+        WeatherDiskStore.Entry latest = reopened.get("10001_US");
+        assertEquals(new WeatherResponse(22.0, 25.0, 15.0, "{}", false), latest.response());
+        assertEquals(now, latest.writtenAtMillis());
+        assertNull(reopened.get("94105_US").response().getExtendedForecast());
+        WeatherResponse compact = reopened.get("60601_US").response();
+        assertEquals(daily, compact.getDaily());
+        assertEquals("{\"time\":[\"2026-10-18\",\"2026-10-19\"],\"temperature_2m_max\":[24.1,null],\"temperature_2m_min\":[15.2,14.8]}",
+                compact.getExtendedForecast());
+        assertEquals(64 * 1024, Files.size(file));
+    }
+
+    @Test
+    void tornRecordIsDiscardedOnOpen() throws Exception {
+        Path file = dir.resolve("weather.bin");
+        long now = System.currentTimeMillis();
+
+        WeatherDiskStore first = open(file, 64 * 1024);
+        first.put(entry("10001_US", 21.5, "{}", now));
+        first.put(entry("94105_US", 14.0, "{}", now));
+        first.close();
+        // simulate a crash part-way through the second record: its length made it to disk but its body did not
+        int secondRecord = 16 + ByteBuffer.wrap(Files.readAllBytes(file)).getInt(8);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, 0x7F}), secondRecord + 20);
+        }
+
+        WeatherDiskStore reopened = open(file, 64 * 1024);
+        assertNotNull(reopened.get("10001_US"));
+        assertNull(reopened.get("94105_US"));
+
+        reopened.put(entry("60601_US", -3.0, "{}", now));
+        reopened.close();
+        WeatherDiskStore again = open(file, 64 * 1024);
+        assertEquals(2, again.size());
+        assertEquals(-3.0, again.get("60601_US").response().getCurrentTemp());
+    }
+
+    @Test
+    void fullFileIsCompactedToNewestLiveEntriesAndNeverGrows() throws Exception {
+        Path file = dir.resolve("weather.bin");
+        long now = System.currentTimeMillis();
+        WeatherDiskStore store = open(file, 4096);
+        store.put(entry("expired", 1.0, "{}", now - TTL.toMillis() - 1));
+
+        for (int i = 0; i < 500; i++) {
+            store.put(entry("zip" + (i % 40), i, "{}", now + i));
+            assertEquals(4096, Files.size(file));
+        }
+
+        assertNull(store.get("expired"));
+        assertEquals(499.0, store.get("zip19").response().getCurrentTemp());
+        assertEquals(498.0, store.get("zip18").response().getCurrentTemp());
+        store.close();
+        assertEquals(499.0, open(file, 4096).get("zip19").response().getCurrentTemp());
+    }
+
+    @Test
+    void writesMadeWhileCompactingAreCarriedOverOrSkippedOnceFull() throws Exception {
+        Path file = dir.resolve("weather.bin");
+        long now = System.currentTimeMillis();
+        List<Runnable> compactions = new ArrayList<>();
+        WeatherDiskStore store = open(file, 4096, compactions::add);
+
+        int i = 0;
+        while (compactions.isEmpty()) {
+            assertTrue(store.put(entry("zip" + (i % 40), i, "{}", now + i)));
+            i++;
+        }
+        // the compaction hasn't run yet, so the writes go on into the last quarter until the file is full
+        int lastWritten = i - 1;
+        while (store.put(entry("zip" + (i % 40), i, "{}", now + i))) {
+            lastWritten = i++;
+        }
+        assertFalse(store.put(entry("late", 1.0, "{}", now + i)));
+        assertEquals(1, compactions.size());
+
+        compactions.get(0).run();
+
+        assertEquals(lastWritten, store.get("zip" + (lastWritten % 40)).response().getCurrentTemp());
+        assertNull(store.get("late"));
+        assertTrue(store.put(entry("late", 1.0, "{}", now + i)));
+        assertEquals(4096, Files.size(file));
+        store.close();
+        WeatherDiskStore reopened = open(file, 4096);
+        assertEquals(lastWritten, reopened.get("zip" + (lastWritten % 40)).response().getCurrentTemp());
+        assertEquals(1.0, reopened.get("late").response().getCurrentTemp());
+    }
+
+    @Test
+    void fileFromAnotherFormatVersionIsDiscarded() throws Exception {
+        Path file = dir.resolve("weather.bin");
+        Files.write(file, new byte[]{0, 0, 0, 61, 1, 2, 3, 4, 5});
+
+        WeatherDiskStore store = open(file, 64 * 1024);
+        assertEquals(0, store.size());
+        store.put(entry("10001_US", 21.5, "{}", System.currentTimeMillis()));
+        store.close();
+        assertEquals(1, open(file, 64 * 1024).size());
+    }
+
+    @Test
+    void expiredEntriesAreNotServed() throws Exception {
+        WeatherDiskStore store = open(dir.resolve("weather.bin"), 64 * 1024);
+        store.put(entry("10001_US", 21.5, "{}", System.currentTimeMillis() - TTL.toMillis()));
+
+        assertNull(store.get("10001_US"));
+        assertEquals(0, store.size());
+    }
+
+    // Compactions run inline, right after the write that starts them
+    private static WeatherDiskStore open(Path file, int capacity) throws IOException {
+        return open(file, capacity, Runnable::run);
+    }
+
+    private static WeatherDiskStore open(Path file, int capacity, Executor compactor) throws IOException {
+        WeatherDiskStore store = new WeatherDiskStore(file, capacity, TTL, compactor);
+        store.open();
+        return store;
+    }
+
+    private static WeatherDiskStore.Entry entry(String key, double currentTemp, String forecast, long writtenAt) {
+        return new WeatherDiskStore.Entry(key, new WeatherResponse(currentTemp, 25.0, 15.0, forecast, false), writtenAt);
+    }
+}
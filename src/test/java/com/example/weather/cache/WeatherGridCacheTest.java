@@ -0,0 +1,66 @@
+package com.example.weather.cache;
+
+import com.example.weather.config.CacheConfig;
+import com.example.weather.config.WeatherGridProperties;
+import com.example.weather.model.response.WeatherResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherGridCacheTest {
+
+    private final List<double[]> fetched = new ArrayList<>();
+
+    @Test
+    void pointsInTheSameCellShareOneFetchAtTheCellCentre() {
+        WeatherGridCache grid = newGrid(true, 0.05);
+
+        WeatherResponse first = grid.get(40.7128, -74.0060, this::fetch);
+        WeatherResponse second = grid.get(40.7301, -74.0101, this::fetch);
+
+        assertEquals(1, fetched.size());
+        assertEquals(40.725, fetched.get(0)[0], 1e-9);
+        assertEquals(-74.025, fetched.get(0)[1], 1e-9);
+        assertSame(first, second);
+        assertEquals(1, grid.stats().hitCount());
+        assertEquals(1, grid.stats().missCount());
+    }
+
+    @Test
+    void pointsInDifferentCellsAreFetchedSeparately() {
+        WeatherGridCache grid = newGrid(true, 0.05);
+
+        grid.get(40.7128, -74.0060, this::fetch);
+        grid.get(40.7628, -74.0060, this::fetch);
+
+        assertEquals(2, fetched.size());
+    }
+
+    @Test
+    void disabledGridFetchesExactCoordinatesEveryTime() {
+        WeatherGridCache grid = newGrid(false, 0.05);
+
+        grid.get(40.7128, -74.0060, this::fetch);
+        grid.get(40.7128, -74.0060, this::fetch);
+
+        assertEquals(2, fetched.size());
+        assertEquals(40.7128, fetched.get(0)[0]);
+    }
+
+    private WeatherResponse fetch(double latitude, double longitude) {
+        fetched.add(new double[]{latitude, longitude});
+        return new WeatherResponse(20.0, 25.0, 15.0, "{}", false);
+    }
+
+    private static WeatherGridCache newGrid(boolean enabled, double step) {
+        WeatherGridProperties properties = new WeatherGridProperties();
+        properties.setEnabled(enabled);
+        properties.setStepDegrees(step);
+        properties.setExpireAfterWriteMinutes(15);
+        properties.setMaximumSize(100);
+        return new WeatherGridCache(new CacheConfig().weatherGridCaffeineCache(properties), properties);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherJsonEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WeatherJsonEncoder encoder = new WeatherJsonEncoder(objectMapper);
+
+    @Test
+    void cachedFormIsEncodedAsJacksonWouldWriteIt() throws Exception {
+        WeatherResponse response = new WeatherResponse(21.5, 24.1, 15.2,
+                new DailyForecast(LocalDate.of(2026, 10, 18).toEpochDay(), new float[]{24.1f, 23.0f}, new float[]{15.2f, 14.8f}), false);
+
+        WeatherResponse cached = encoder.toCached(response);
+
+        assertTrue(cached.isFromCache());
+        assertEquals(objectMapper.writeValueAsString(cached), written(cached));
+        assertEquals(written(cached).getBytes(StandardCharsets.UTF_8).length, cached.getEncoded().contentLength());
+        // the response it was built from is left as it was
+        assertFalse(response.isFromCache());
+        assertNull(response.getEncoded());
+        assertSame(cached, encoder.toCached(cached));
+    }
+
+    @Test
+    void encodedBytesDoNotDependOnTheMapperLayout() throws Exception {
+        ObjectMapper indentingMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        WeatherResponse cached = new WeatherJsonEncoder(indentingMapper).toCached(new WeatherResponse(21.5, 24.1, 15.2, "Sunny", false));
+
+        assertEquals(indentingMapper.writeValueAsString(cached), written(cached));
+    }
+
+    private static String written(WeatherResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getEncoded().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
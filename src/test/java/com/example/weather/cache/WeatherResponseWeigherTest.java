@@ -0,0 +1,57 @@
+package com.example.weather.cache;
+
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherResponseWeigherTest {
+
+    private final WeatherResponseWeigher weigher = new WeatherResponseWeigher();
+
+    @Test
+    void compactSeriesWeighsAFractionOfTheSameForecastAsText() {
+        WeatherResponse compact = sixteenDayForecast();
+        WeatherResponse text = new WeatherResponse(compact.getCurrentTemp(), compact.getMaxTemp(), compact.getMinTemp(),
+                compact.getExtendedForecast(), false);
+
+        int compactWeight = weigher.weigh("10001_US", compact);
+        int textWeight = weigher.weigh("10001_US", text);
+
+        assertTrue(compactWeight < 500, "compact " + compactWeight);
+        assertTrue(compactWeight * 2 < textWeight, "compact " + compactWeight + " vs text " + textWeight);
+    }
+
+    @Test
+    void cacheIsBoundedByWeightNotEntryCount() {
+        Cache<String, WeatherResponse> cache = Caffeine.newBuilder()
+                .maximumWeight(1024 * 1024)
+                .weigher(weigher)
+                .executor(Runnable::run)
+                .build();
+
+        for (int i = 0; i < 20_000; i++) {
+            cache.put(String.format("%05d_US", i), sixteenDayForecast());
+        }
+        cache.cleanUp();
+
+        long totalWeight = cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(totalWeight <= 1024 * 1024);
+        assertTrue(cache.estimatedSize() > 2_000, "entries " + cache.estimatedSize());
+    }
+
+    private static WeatherResponse sixteenDayForecast() {
+        float[] max = new float[16];
+        float[] min = new float[16];
+        for (int day = 0; day < 16; day++) {
+            max[day] = 20.5f + day * 0.3f;
+            min[day] = 10.1f + day * 0.2f;
+        }
+        return new WeatherResponse(18.4, max[0], min[0], new DailyForecast(LocalDate.of(2026, 10, 18).toEpochDay(), max, min), false);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.OfflineGeocodingProperties;
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OfflineGeocodingClientTest {
+
+    @Test
+    void onlyPostalCodesMissingFromTheDatasetGoToNominatim() throws Exception {
+        NominatimGeocodingClient nominatim = mock(NominatimGeocodingClient.class);
+        when(nominatim.getCoordinates("60601", "US")).thenReturn(new Coordinates(41.88, -87.62));
+        OfflineGeocodingClient client = new OfflineGeocodingClient(nominatim, properties());
+        client.loadDataset();
+
+        assertEquals(new Coordinates(37.7864f, -122.3892f), client.getCoordinates("94105", "US"));
+        assertEquals(new Coordinates(41.88, -87.62), client.getCoordinates("60601", "US"));
+        verify(nominatim, times(1)).getCoordinates(anyString(), anyString());
+        verifyNoMoreInteractions(nominatim);
+    }
+
+    @Test
+    void weatherServiceSkipsNominatimForPostalCodesInTheDataset() throws Exception {
+        try (FakeUpstreamServer upstream = new FakeUpstreamServer();
+             WeatherServiceFixture fixture = new WeatherServiceFixture(upstream)) {
+            fixture.offlineGeocodingProperties.setDatasetPath(properties().getDatasetPath());
+            fixture.offlineGeocoder.loadDataset();
+
+            assertNotNull(fixture.weatherService.getWeather(new WeatherRequest("10001", "US")));
+            fixture.weatherService.getWeatherBatch(List.of(new WeatherRequest("94105", "US"), new WeatherRequest("60601", "US")));
+
+            assertEquals(1, upstream.geoCalls());
+        }
+    }
+
+    private static OfflineGeocodingProperties properties() throws Exception {
+        OfflineGeocodingProperties properties = new OfflineGeocodingProperties();
+        properties.setDatasetPath(Path.of(OfflineGeocodingClientTest.class.getResource("/fixtures/geonames-postal-codes.txt").toURI()).toString());
+        return properties;
+    }
+}
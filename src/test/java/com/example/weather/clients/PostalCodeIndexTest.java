@@ -0,0 +1,67 @@
+package com.example.weather.clients;
+
+import com.example.weather.model.request.Coordinates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostalCodeIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsPostalCodesIgnoringCaseAndWhitespace() throws Exception {
+        PostalCodeIndex index = PostalCodeIndex.load(dataset(), 1000, Duration.ofSeconds(10));
+
+        assertEquals(6, index.size());
+        assertEquals(new Coordinates(37.7864f, -122.3892f), index.find("94105", "US"));
+        assertEquals(new Coordinates(51.5f, -0.1416f), index.find("sw1a", "gb"));
+        assertEquals(new Coordinates(35.6841f, 139.7532f), index.find("100-0001", "JP"));
+        assertEquals(new Coordinates(47.0f, -53.0f), index.find(" a0a ", "ca"));
+        // a duplicated postal code resolves to one of its rows
+        Coordinates duplicate = index.find("10001", "US");
+        assertTrue(duplicate.equals(new Coordinates(40.7484f, -73.9967f)) || duplicate.equals(new Coordinates(40.75f, -74.0f)));
+    }
+
+    @Test
+    void missesAreNullSoCallersCanFallBack() throws Exception {
+        PostalCodeIndex index = PostalCodeIndex.load(dataset(), 1000, Duration.ofSeconds(10));
+
+        assertNull(index.find("10001", "DE"));
+        assertNull(index.find("10001", null));
+        assertNull(index.find("60601", "US"));          // row with an unparseable latitude was skipped
+        assertNull(index.find("12345-678901", "BR"));   // longer than the packed key allows
+        assertNull(index.find("10_001", "US"));
+        assertEquals(new Coordinates(52.5323f, 13.3846f), index.find("10115", "us,de"));
+    }
+
+    @Test
+    void loadingStopsAtTheEntryBudget() throws Exception {
+        Path large = dir.resolve("postal.txt");
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(String.format("US\t%05d\tPlace\t\t\t\t\t\t\t%d.5\t-%d.25\t4", i, i % 90, i % 180));
+        }
+        Files.write(large, rows);
+
+        PostalCodeIndex index = PostalCodeIndex.load(large, 1200, Duration.ofSeconds(10));
+
+        assertEquals(1200, index.size());
+        assertEquals(new Coordinates(29.5f, -119.25f), index.find("01199", "US"));
+        assertNull(index.find("01200", "US"));
+    }
+
+    private static Path dataset() throws URISyntaxException, IOException {
+        return Path.of(PostalCodeIndexTest.class.getResource("/fixtures/geonames-postal-codes.txt").toURI());
+    }
+}
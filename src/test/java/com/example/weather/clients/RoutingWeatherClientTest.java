@@ -0,0 +1,125 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.WeatherRoutingProperties;
+import com.example.weather.interfaces.WeatherClient;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.response.WeatherResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The router against local stub providers whose latency and failures each test sets.
+ */
+class RoutingWeatherClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WeatherRoutingProperties properties = new WeatherRoutingProperties();
+    private RoutingWeatherClient router;
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void callsGoToTheFastestProvider() {
+        StubProvider slow = new StubProvider(40);
+        StubProvider fast = new StubProvider(2);
+        router = router("slow", slow, "fast", fast);
+
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(router.getWeather(40.7, -74.0));
+        }
+
+        // one call each to learn their latency, then everything to the fast one
+        assertEquals(1, slow.calls.get());
+        assertEquals(19, fast.calls.get());
+        assertTrue(router.latencyMillis("slow") > router.latencyMillis("fast"));
+    }
+
+    @Test
+    void aCallSlowerThanItsP95IsHedgedToTheNextProvider() {
+        properties.setHedgeMinDelayMillis(20);
+        properties.setHedgeBudgetPercent(100);
+        StubProvider primary = new StubProvider(1);
+        StubProvider backup = new StubProvider(30);
+        router = router("primary", primary, "backup", backup);
+        for (int i = 0; i < 30; i++) {
+            router.getWeather(40.7, -74.0);
+        }
+        int backupCalls = backup.calls.get();
+
+        primary.latencyMillis = 2000;
+        long start = System.nanoTime();
+        WeatherResponse response = router.getWeather(40.7, -74.0);
+
+        assertSame(backup.response, response);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1000, "the hedge should answer long before the slow call");
+        assertEquals(backupCalls + 1, backup.calls.get());
+        assertTrue(registry.get("weather.routing.hedges").tag("outcome", "won").counter().count() >= 1);
+    }
+
+    @Test
+    void failingProviderIsSkippedUntilAProbeFindsItHealthy() throws Exception {
+        properties.setProbeIntervalMillis(1000);
+        StubProvider flaky = new StubProvider(1);
+        StubProvider steady = new StubProvider(20);
+        router = router("flaky", flaky, "steady", steady);
+
+        flaky.failing = true;
+        for (int i = 0; i < 10; i++) {
+            // every failure is answered by the other provider
+            assertSame(steady.response, router.getWeather(40.7, -74.0));
+        }
+        assertTrue(router.errorRate("flaky") > properties.getMaxErrorRate());
+        int flakyCalls = flaky.calls.get();
+        router.getWeather(40.7, -74.0);
+        assertEquals(flakyCalls, flaky.calls.get());
+
+        flaky.failing = false;
+        Thread.sleep(1100);
+        assertSame(flaky.response, router.getWeather(40.7, -74.0));
+        assertEquals(flakyCalls + 1, flaky.calls.get());
+    }
+
+    private RoutingWeatherClient router(String firstName, StubProvider first, String secondName, StubProvider second) {
+        Map<String, WeatherClient> providers = new LinkedHashMap<>();
+        providers.put(firstName, first);
+        providers.put(secondName, second);
+        return new RoutingWeatherClient(providers, properties, new WeatherMetrics(registry));
+    }
+
+    private static final class StubProvider implements WeatherClient {
+        final WeatherResponse response = new WeatherResponse(21.5, 25.0, 15.0, "{}", false);
+        final AtomicInteger calls = new AtomicInteger();
+        volatile long latencyMillis;
+        volatile boolean failing;
+
+        StubProvider(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public WeatherResponse getWeather(double lattitude, double longitude) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException("provider down");
+            }
+            return response;
+        }
+    }
+}
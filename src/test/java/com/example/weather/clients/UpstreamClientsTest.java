@@ -0,0 +1,137 @@
+package com.example.weather.clients;
+
+import com.example.weather.cache.GeocodingCache;
+import com.example.weather.cache.WeatherGridCache;
+import com.example.weather.config.CacheConfig;
+import com.example.weather.config.GeocodingCacheProperties;
+import com.example.weather.config.UpstreamHttpConfig;
+import com.example.weather.config.UpstreamHttpProperties;
+import com.example.weather.config.WeatherGridProperties;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamClientsTest {
+
+    private FakeUpstreamServer upstream;
+    private UpstreamHttpProperties httpProperties;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new FakeUpstreamServer();
+        httpProperties = new UpstreamHttpProperties();
+        httpProperties.setMaxConnectionsPerHost(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.close();
+    }
+
+    @Test
+    void clientsGeocodeAndFetchTheForecast() {
+        Clients clients = newClients();
+
+        Coordinates coordinates = clients.geocoding.getCoordinates("10001", "us");
+        WeatherResponse weather = clients.weather.getWeather(coordinates.getLatitude(), coordinates.getLongitude());
+
+        assertEquals(21.5, weather.getCurrentTemp());
+        assertEquals(1, upstream.geoCalls());
+        assertEquals(1, upstream.weatherCalls());
+        // the second lookup is answered by the geocoding cache without touching the network
+        assertEquals(coordinates, clients.geocoding.getCoordinates("10001", "us"));
+        assertEquals(1, upstream.geoCalls());
+    }
+
+    @Test
+    void multiLocationForecastsComeBackInOrder() {
+        Clients clients = newClients();
+
+        List<WeatherResponse> forecasts = clients.weather.getWeather(List.of(new double[]{40.7, -74.0}, new double[]{34.05, -118.25}));
+
+        assertEquals(2, forecasts.size());
+        assertEquals(1, upstream.weatherCalls());
+        assertEquals("latitude=40.700000,34.050000&longitude=-74.000000,-118.250000",
+                OpenMeteoWeatherClient.forecastUri(upstream.weatherUrl(), List.of(new double[]{40.7, -74.0}, new double[]{34.05, -118.25}))
+                        .getRawQuery().replaceAll("&current_weather.*", ""));
+    }
+
+    @Test
+    void callsToBothUpstreamsShareThePerHostLimit() throws Exception {
+        Clients clients = newClients();
+        upstream.holdRequests();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<Coordinates> inFlight = caller.submit(() -> clients.geocoding.getCoordinates("10001", "us"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (clients.limiter.inFlight(host()) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertThrows(ResourceAccessException.class, () -> clients.weather.getWeather(41.0, -74.0));
+
+            upstream.release();
+            assertNotNull(inFlight.get(5, TimeUnit.SECONDS));
+            assertNotNull(clients.weather.getWeather(41.0, -74.0));
+            assertEquals(0, clients.limiter.inFlight(host()));
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    // both fake upstreams are served from one host
+    private String host() {
+        return PerHostRequestLimiter.hostOf(URI.create(upstream.weatherUrl()));
+    }
+
+    private record Clients(NominatimGeocodingClient geocoding, OpenMeteoWeatherClient weather, PerHostRequestLimiter limiter) {
+    }
+
+    private Clients newClients() {
+        UpstreamHttpConfig httpConfig = new UpstreamHttpConfig();
+        HttpClient httpClient = httpConfig.upstreamHttpClient(httpProperties, new MockEnvironment());
+        // no queueing for a connection, so a saturated host is rejected straight away
+        PerHostRequestLimiter limiter = new PerHostRequestLimiter(httpProperties.getMaxConnectionsPerHost(), 0);
+        RestTemplate restTemplate = httpConfig.upstreamRestTemplate(httpClient, limiter, httpProperties);
+
+        CacheConfig cacheConfig = new CacheConfig();
+        GeocodingCacheProperties geocodingProperties = new GeocodingCacheProperties();
+        geocodingProperties.setExpireAfterWriteDays(30);
+        geocodingProperties.setMaximumSize(100);
+        GeocodingCache geocodingCache = new GeocodingCache(cacheConfig.geocodingCaffeineCache(geocodingProperties), geocodingProperties);
+        WeatherGridProperties gridProperties = new WeatherGridProperties();
+        gridProperties.setEnabled(true);
+        gridProperties.setStepDegrees(0.05);
+        gridProperties.setExpireAfterWriteMinutes(15);
+        gridProperties.setMaximumSize(100);
+        WeatherGridCache gridCache = new WeatherGridCache(cacheConfig.weatherGridCaffeineCache(gridProperties), gridProperties);
+
+        WeatherMetrics metrics = new WeatherMetrics(new SimpleMeterRegistry());
+        UpstreamScheduler scheduler = new UpstreamScheduler(WeatherServiceFixture.unpacedUpstreams(), metrics);
+        NominatimGeocodingClient geocoding = new NominatimGeocodingClient(restTemplate, scheduler, geocodingCache, metrics);
+        OpenMeteoWeatherClient weather = new OpenMeteoWeatherClient(restTemplate, scheduler, gridCache, metrics);
+        ReflectionTestUtils.setField(geocoding, "geoApiUrl", upstream.geoUrl());
+        ReflectionTestUtils.setField(weather, "weatherApiUrl", upstream.weatherUrl());
+        return new Clients(geocoding, weather, limiter);
+    }
+}
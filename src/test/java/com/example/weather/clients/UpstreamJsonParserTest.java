@@ -0,0 +1,84 @@
+package com.example.weather.clients;
+
+import com.example.weather.model.request.Coordinates;
+import com.example.weather.model.response.DailyForecast;
+import com.example.weather.model.response.WeatherResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamJsonParserTest {
+
+    @Test
+    void forecastPicksTodaysTemperaturesAndKeepsDailyAsCompactSeries() throws IOException {
+        byte[] body = fixture("open-meteo-forecast.json");
+
+        WeatherResponse forecast = UpstreamJsonParser.parseForecast(new ByteArrayInputStream(body));
+
+        assertEquals(13.4, forecast.getCurrentTemp());
+        assertEquals(17.9, forecast.getMaxTemp());
+        assertEquals(9.8, forecast.getMinTemp());
+        assertFalse(forecast.isFromCache());
+        DailyForecast daily = forecast.getDaily();
+        assertEquals(LocalDate.of(2026, 10, 18).toEpochDay(), daily.firstEpochDay());
+        assertEquals(7, daily.days());
+        assertEquals(16.8f, daily.maxTemp(6));
+        assertEquals(8.9f, daily.minTemp(6));
+        // rendered back to the same extended forecast the JsonNode tree used to produce
+        JsonNode tree = new ObjectMapper().readTree(body);
+        assertEquals(tree.get("daily").toString(), forecast.getExtendedForecast());
+    }
+
+    @Test
+    void forecastsAcceptAnArrayOrASingleObject() throws IOException {
+        String one = new String(fixture("open-meteo-forecast.json"), StandardCharsets.UTF_8);
+
+        List<WeatherResponse> array = UpstreamJsonParser.parseForecasts(stream("[" + one + "," + one + "]"));
+        List<WeatherResponse> single = UpstreamJsonParser.parseForecasts(stream(one));
+
+        assertEquals(2, array.size());
+        assertEquals(array.get(0), array.get(1));
+        assertEquals(List.of(array.get(0)), single);
+    }
+
+    @Test
+    void forecastWithoutCurrentWeatherIsRejected() {
+        assertThrows(IOException.class, () -> UpstreamJsonParser.parseForecast(
+                stream("{\"daily\":{\"temperature_2m_max\":[1.0],\"temperature_2m_min\":[0.0]}}")));
+    }
+
+    @Test
+    void dailyWithGapsOrMismatchedSeriesIsRejected() {
+        assertThrows(IOException.class, () -> UpstreamJsonParser.parseForecast(stream("{\"current_weather\":{\"temperature\":1.0},"
+                + "\"daily\":{\"time\":[\"2026-10-18\",\"2026-10-20\"],\"temperature_2m_max\":[1.0,2.0],\"temperature_2m_min\":[0.0,0.0]}}")));
+        assertThrows(IOException.class, () -> UpstreamJsonParser.parseForecast(stream("{\"current_weather\":{\"temperature\":1.0},"
+                + "\"daily\":{\"time\":[\"2026-10-18\"],\"temperature_2m_max\":[1.0,2.0],\"temperature_2m_min\":[0.0]}}")));
+    }
+
+    @Test
+    void placeReadsStringCoordinatesOfTheFirstMatch() throws IOException {
+        Coordinates coordinates = UpstreamJsonParser.parseFirstPlace(new ByteArrayInputStream(fixture("nominatim-search.json")));
+
+        assertEquals(new Coordinates(40.7484284, -73.9967630), coordinates);
+        assertNull(UpstreamJsonParser.parseFirstPlace(stream("[]")));
+    }
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream in = UpstreamJsonParserTest.class.getResourceAsStream("/fixtures/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
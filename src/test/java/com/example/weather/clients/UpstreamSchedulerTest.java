@@ -0,0 +1,148 @@
+package com.example.weather.clients;
+
+import com.example.weather.config.UpstreamPacingProperties;
+import com.example.weather.customException.RateLimitExceededException;
+import com.example.weather.metrics.WeatherMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamSchedulerTest {
+
+    private static final String UPSTREAM = "nominatim";
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private UpstreamScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void dispatchesAreSpacedAtTheConfiguredRate() throws Exception {
+        scheduler = newScheduler(20, 3000, 8);
+        List<Long> dispatchedAt = new CopyOnWriteArrayList<>();
+
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String key = "call-" + i;
+            calls.add(callers.submit(() -> scheduler.execute(UPSTREAM, key, () -> dispatchedAt.add(System.nanoTime()))));
+        }
+        for (Future<?> call : calls) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+
+        List<Long> sorted = dispatchedAt.stream().sorted().toList();
+        for (int i = 1; i < sorted.size(); i++) {
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(sorted.get(i) - sorted.get(i - 1));
+            assertTrue(gapMillis >= 45, "gap " + i + " was " + gapMillis + " ms");
+        }
+    }
+
+    @Test
+    void identicalQueuedCallsShareOneDispatch() throws Exception {
+        scheduler = newScheduler(1000, 3000, 8);
+        AtomicInteger dispatches = new AtomicInteger();
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = callers.submit(() -> scheduler.execute(UPSTREAM, "10001_US", () -> {
+            dispatches.incrementAndGet();
+            inFlight.countDown();
+            await(release);
+            return "40.75,-73.99";
+        }));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        Future<String> second = callers.submit(() -> scheduler.execute(UPSTREAM, "10001_US", () -> {
+            dispatches.incrementAndGet();
+            return "other";
+        }));
+        Future<String> third = callers.submit(() -> scheduler.execute(UPSTREAM, "10001_US", () -> {
+            dispatches.incrementAndGet();
+            return "other";
+        }));
+        // both have joined the first call before it completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (joined() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals("40.75,-73.99", first.get(5, TimeUnit.SECONDS));
+        assertEquals("40.75,-73.99", second.get(5, TimeUnit.SECONDS));
+        assertEquals("40.75,-73.99", third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatches.get());
+    }
+
+    @Test
+    void callsThatWouldWaitPastTheDeadlineFailFastWithRetryAfter() {
+        scheduler = newScheduler(1, 500, 8);
+        assertEquals("first", scheduler.execute(UPSTREAM, "a", () -> "first"));
+
+        long start = System.nanoTime();
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> scheduler.execute(UPSTREAM, "b", () -> "second"));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400, "rejected without queueing");
+        assertEquals(503, rejected.getStatusCode());
+        assertEquals("1", rejected.getRetryAfter());
+    }
+
+    @Test
+    void concurrencyLimitHalvesOnFailureAndGrowsBackOnSuccess() {
+        scheduler = newScheduler(100_000, 3000, 8);
+        assertEquals(8, scheduler.concurrencyLimit(UPSTREAM));
+
+        assertThrows(IllegalStateException.class, () -> scheduler.execute(UPSTREAM, null, () -> {
+            throw new IllegalStateException("upstream returned 503");
+        }));
+        assertEquals(4, scheduler.concurrencyLimit(UPSTREAM));
+
+        for (int i = 0; i < 20; i++) {
+            scheduler.execute(UPSTREAM, null, () -> "ok");
+        }
+        double grown = scheduler.concurrencyLimit(UPSTREAM);
+        assertTrue(grown > 6 && grown <= 8, "limit " + grown);
+    }
+
+    private long joined() {
+        // the timer only exists once the first call has joined
+        Timer timer = registry.find("weather.upstream.queue.wait").tags("upstream", UPSTREAM, "outcome", "joined").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private UpstreamScheduler newScheduler(double ratePerSecond, int maxQueueWaitMillis, int concurrency) {
+        UpstreamPacingProperties properties = new UpstreamPacingProperties();
+        properties.setMaxQueueWaitMillis(maxQueueWaitMillis);
+        UpstreamPacingProperties.Lane lane = new UpstreamPacingProperties.Lane();
+        lane.setRatePerSecond(ratePerSecond);
+        lane.setInitialConcurrency(concurrency);
+        lane.setMaxConcurrency(concurrency);
+        properties.getLanes().put(UPSTREAM, lane);
+        return new UpstreamScheduler(properties, new WeatherMetrics(registry));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.weather.config;
+
+import com.example.weather.cache.GeocodingCache;
+import com.example.weather.service.WeatherService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"spring.main.lazy-initialization=true", "cache.weather.store-path=", "cache.geocoding.store-path="})
+class LazyInitializationConfigTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void weatherRequestPathIsCreatedAtStartupAndTheRestOnFirstUse() {
+        assertTrue(beanFactory.containsSingleton("weatherController"));
+        assertTrue(beanFactory.containsSingleton(beanFactory.getBeanNamesForType(WeatherService.class)[0]));
+        assertTrue(beanFactory.containsSingleton(beanFactory.getBeanNamesForType(GeocodingCache.class)[0]));
+
+        assertFalse(beanFactory.containsSingleton("authenticationController"));
+        assertFalse(beanFactory.containsSingleton("cacheStatsController"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.weather.config;
+
+import com.example.weather.metrics.WeatherMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamPacingPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(PacingConfiguration.class);
+
+    @Test
+    void knownUpstreamsHaveBuiltInLanes() {
+        contextRunner.run(context -> {
+            UpstreamPacingProperties properties = context.getBean(UpstreamPacingProperties.class);
+            assertEquals(1, properties.lane(WeatherMetrics.NOMINATIM).getRatePerSecond());
+            assertEquals(10, properties.lane(WeatherMetrics.OPEN_METEO).getRatePerSecond());
+            assertFalse(properties.hasLane("backup"));
+        });
+    }
+
+    @Test
+    void configuredLaneReplacesTheBuiltInOne() {
+        contextRunner.withPropertyValues("upstream.pacing.lanes.nominatim.rate-per-second=2",
+                "upstream.pacing.lanes.backup.rate-per-second=5").run(context -> {
+            UpstreamPacingProperties properties = context.getBean(UpstreamPacingProperties.class);
+            assertEquals(2, properties.lane(WeatherMetrics.NOMINATIM).getRatePerSecond());
+            assertEquals(10, properties.lane(WeatherMetrics.OPEN_METEO).getRatePerSecond());
+            assertTrue(properties.hasLane("backup"));
+        });
+    }
+
+    @Test
+    void zeroRateIsRejectedAtStartup() {
+        contextRunner.withPropertyValues("upstream.pacing.lanes.open-meteo.rate-per-second=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(UpstreamPacingProperties.class)
+    static class PacingConfiguration {
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.weather.controller;
+
+import com.example.weather.cache.WeatherJsonEncoder;
+import com.example.weather.config.EncodedWeatherHttpMessageConverter;
+import com.example.weather.config.ProjectedWeatherHttpMessageConverter;
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.service.WeatherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class WeatherControllerTest {
+
+    private final WeatherService weatherService = mock(WeatherService.class);
+    private MockMvc mockMvc;
+    private WeatherResponse cached;
+
+    @BeforeEach
+    void setUp() {
+        WeatherController controller = new WeatherController();
+        WeatherCacheProperties properties = new WeatherCacheProperties();
+        properties.setExpireAfterWriteMinutes(15);
+        ReflectionTestUtils.setField(controller, "weatherService", weatherService);
+        ReflectionTestUtils.setField(controller, "weatherCacheProperties", properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new EncodedWeatherHttpMessageConverter(),
+                        new ProjectedWeatherHttpMessageConverter(new ObjectMapper()), new MappingJackson2HttpMessageConverter())
+                .build();
+
+        // fetched five minutes ago, so ten of the fifteen minutes are left
+        cached = new WeatherResponse(21.5, 24.1, 15.2, "Sunny", true)
+                .withFetchedAtMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5));
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(cached);
+    }
+
+    @Test
+    void responseCarriesValidatorsAndTheRemainingTtl() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, cached.etag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.currentTemp").value(21.5))
+                .andReturn();
+
+        String cacheControl = result.getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        assertNotNull(cacheControl);
+        long maxAge = Long.parseLong(cacheControl.replace("max-age=", ""));
+        assertTrue(maxAge > 590 && maxAge <= 600, cacheControl);
+    }
+
+    @Test
+    void cacheHitIsWrittenFromItsEncodedBytes() throws Exception {
+        WeatherResponse hit = new WeatherJsonEncoder(new ObjectMapper()).toCached(new WeatherResponse(21.5, 24.1, 15.2, "Sunny", false));
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(hit);
+
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(content().string(new ObjectMapper().writeValueAsString(hit)))
+                .andExpect(jsonPath("$.fromCache").value(true));
+        assertNotNull(hit.getEncoded());
+    }
+
+    @Test
+    void matchingIfNoneMatchGets304WithoutABody() throws Exception {
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us")
+                        .header(HttpHeaders.IF_NONE_MATCH, cached.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, cached.etag()))
+                .andExpect(content().string(""));
+
+        // a newer fetch of the same location is a different version
+        WeatherResponse refreshed = cached.withFetchedAtMillis(System.currentTimeMillis());
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(refreshed);
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us")
+                        .header(HttpHeaders.IF_NONE_MATCH, cached.etag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, refreshed.etag()));
+    }
+
+    @Test
+    void fieldsLimitsTheBodyToTheRequestedProperties() throws Exception {
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us")
+                        .param("fields", "currentTemp,fromCache"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(content().string("{\"currentTemp\":21.5,\"fromCache\":true}"))
+                .andExpect(header().string(HttpHeaders.ETAG, cached.etag()));
+    }
+
+    @Test
+    void allFieldsProjectToTheFullBody() throws Exception {
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us")
+                        .param("fields", "fromCache,extendedForecast,minTemp,maxTemp,currentTemp"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(new ObjectMapper().writeValueAsString(cached)));
+    }
+
+    @Test
+    void countryCodesThatAreNotTwoLetterCodesAreABadRequest() throws Exception {
+        for (String countrycodes : new String[]{"us&limit=50", "u{s}", "usa"}) {
+            mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", countrycodes))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us,ca"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownFieldIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/weather").param("zipCode", "10001").param("countrycodes", "us")
+                        .param("fields", "currentTemp,humidity"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown field: humidity"));
+    }
+}
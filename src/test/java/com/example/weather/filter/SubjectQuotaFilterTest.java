@@ -0,0 +1,42 @@
+package com.example.weather.filter;
+
+import com.example.weather.utils.JWTUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"quota.requests-per-second=1", "quota.burst=2"})
+class SubjectQuotaFilterTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void overQuotaCallerGets429WithRetryAfterWhileOthersAreServed() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(HttpStatus.OK, cacheStats("alice").getStatusCode());
+        }
+
+        ResponseEntity<String> rejected = cacheStats("alice");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getBody().contains("/api/v1/cache/stats"), rejected.getBody());
+
+        assertEquals(HttpStatus.OK, cacheStats("bob").getStatusCode());
+    }
+
+    private ResponseEntity<String> cacheStats(String subject) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(JWTUtil.generateToken(subject));
+        return restTemplate.exchange("/api/v1/cache/stats", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
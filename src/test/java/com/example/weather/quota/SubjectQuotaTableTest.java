@@ -0,0 +1,79 @@
+package com.example.weather.quota;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubjectQuotaTableTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void grantsTheBurstThenReportsTheWaitForTheNextToken() {
+        SubjectQuotaTable table = new SubjectQuotaTable(10, 3, Duration.ofMinutes(5), 4);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, table.tryAcquire("alice", now));
+        }
+        assertEquals(100 * MILLI, table.tryAcquire("alice", now));
+        assertEquals(40 * MILLI, table.tryAcquire("alice", now + 60 * MILLI));
+        assertEquals(0, table.tryAcquire("alice", now + 100 * MILLI));
+        assertTrue(table.tryAcquire("alice", now + 100 * MILLI) > 0);
+        // each subject has its own bucket
+        assertEquals(0, table.tryAcquire("bob", now));
+    }
+
+    @Test
+    void concurrentCallersNeverShareMoreThanTheBurst() throws InterruptedException {
+        SubjectQuotaTable table = new SubjectQuotaTable(1, 50, Duration.ofMinutes(5), 4);
+        long now = System.nanoTime();
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (table.tryAcquire("alice", now) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(50, granted.get());
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndComeBackFull() {
+        SubjectQuotaTable table = new SubjectQuotaTable(10, 2, Duration.ofSeconds(1), 1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            table.tryAcquire("subject-" + i, now);
+        }
+        table.tryAcquire("busy", now);
+        table.tryAcquire("busy", now);
+        assertEquals(1_001, table.size());
+
+        // past the sweep; "busy" is refilled by then too, so only the caller of this request remains
+        long later = now + TimeUnit.SECONDS.toNanos(3);
+        assertEquals(0, table.tryAcquire("busy", later));
+        assertEquals(1, table.size());
+        assertEquals(0, table.tryAcquire("busy", later));
+    }
+}
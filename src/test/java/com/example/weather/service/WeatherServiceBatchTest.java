@@ -0,0 +1,119 @@
+package com.example.weather.service;
+
+import com.example.weather.clients.UpstreamScheduler;
+import com.example.weather.config.UpstreamPacingProperties;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.BatchWeatherItem;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceBatchTest {
+
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream);
+        weatherService = fixture.weatherService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+        upstream.close();
+    }
+
+    @Test
+    void duplicatesAreResolvedOnceAndMissesShareOneForecastCall() {
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(
+                new WeatherRequest("10001", "US"),
+                new WeatherRequest("10002", "US"),
+                new WeatherRequest("10001", "US"),
+                new WeatherRequest("94105", "US")));
+
+        assertEquals(4, items.size());
+        assertSame(items.get(0), items.get(2));
+        items.forEach(item -> {
+            assertEquals(200, item.getStatus());
+            assertEquals(21.5, item.getWeather().getCurrentTemp());
+            assertFalse(item.getWeather().isFromCache());
+        });
+        assertEquals(3, upstream.geoCalls());
+        assertEquals(1, upstream.weatherCalls());
+    }
+
+    @Test
+    void cachedEntriesAreServedWithoutUpstreamCalls() {
+        weatherService.getWeather(new WeatherRequest("10001", "US"));
+
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(
+                new WeatherRequest("10001", "US"),
+                new WeatherRequest("10002", "US")));
+
+        assertTrue(items.get(0).getWeather().isFromCache());
+        assertFalse(items.get(1).getWeather().isFromCache());
+        assertEquals(2, upstream.geoCalls());
+        assertEquals(2, upstream.weatherCalls());
+    }
+
+    @Test
+    void failingItemsDoNotFailTheBatch() {
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(
+                new WeatherRequest("10001", "US"),
+                new WeatherRequest(FakeUpstreamServer.UNKNOWN_ZIP, "US")));
+
+        assertEquals(200, items.get(0).getStatus());
+        assertEquals(404, items.get(1).getStatus());
+        assertNull(items.get(1).getWeather());
+        assertNotNull(items.get(1).getError());
+    }
+
+    @Test
+    void upstreamFailureIsReportedPerItemAndNotCached() {
+        upstream.failWeatherWith(500);
+
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(
+                new WeatherRequest("10001", "US"),
+                new WeatherRequest("10002", "US")));
+
+        items.forEach(item -> assertEquals(503, item.getStatus()));
+        assertNull(fixture.weatherCache.getIfPresent("10001_US"));
+    }
+
+    @Test
+    void geocodingRejectedForSomeZipCodesOnlyFailsThoseItems() {
+        // Nominatim paced at one call a second with at most half a second of queueing: only the first lookup gets through
+        UpstreamPacingProperties pacing = WeatherServiceFixture.unpacedUpstreams();
+        UpstreamPacingProperties.Lane nominatim = new UpstreamPacingProperties.Lane();
+        nominatim.setRatePerSecond(1);
+        pacing.getLanes().put(WeatherMetrics.NOMINATIM, nominatim);
+        pacing.setMaxQueueWaitMillis(500);
+        UpstreamScheduler scheduler = new UpstreamScheduler(pacing, new WeatherMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(fixture.nominatim, "upstreamScheduler", scheduler);
+        try {
+            List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(
+                    new WeatherRequest("10001", "US"),
+                    new WeatherRequest("10002", "US"),
+                    new WeatherRequest("94105", "US")));
+
+            assertEquals(1, items.stream().filter(item -> item.getStatus() == 200).count());
+            assertEquals(2, items.stream().filter(item -> item.getStatus() == 503).count());
+            assertEquals(1, upstream.geoCalls());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
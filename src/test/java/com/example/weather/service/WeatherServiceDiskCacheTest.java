@@ -0,0 +1,93 @@
+package com.example.weather.service;
+
+import com.example.weather.cache.WeatherDiskCache;
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceDiskCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final WeatherRequest request = new WeatherRequest("10001", "US");
+
+    private FakeUpstreamServer upstream;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new FakeUpstreamServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.close();
+    }
+
+    @Test
+    void restartServesFreshEntriesFromDiskWithoutGoingUpstream() throws Exception {
+        WeatherResponse original;
+        try (WeatherServiceFixture first = new WeatherServiceFixture(upstream, openDiskCache())) {
+            original = first.weatherService.getWeather(request);
+            first.diskCache.close();
+        }
+        assertEquals(1, upstream.weatherCalls());
+
+        try (WeatherServiceFixture restarted = new WeatherServiceFixture(upstream, openDiskCache())) {
+            WeatherResponse restored = restarted.weatherService.getWeather(request);
+
+            assertEquals(original.getCurrentTemp(), restored.getCurrentTemp());
+            assertEquals(original.getExtendedForecast(), restored.getExtendedForecast());
+            assertTrue(restored.isFromCache());
+            assertEquals(1, upstream.weatherCalls());
+            assertEquals(1, upstream.geoCalls());
+            assertEquals(1, restarted.meterRegistry.get("weather.requests").tag("cache", "disk").timer().count());
+
+            // promoted into memory, with no more lifetime than the disk record had left
+            assertSame(restored, restarted.weatherService.getWeather(request));
+            long remaining = restarted.weatherCache.synchronous().policy().expireVariably().orElseThrow()
+                    .getExpiresAfter("10001_US", TimeUnit.MILLISECONDS).orElseThrow();
+            assertTrue(remaining <= TimeUnit.MINUTES.toMillis(15), "remaining " + remaining);
+            restarted.diskCache.close();
+        }
+    }
+
+    @Test
+    void batchMissesAreWrittenThroughAndServedFromDiskAfterRestart() throws Exception {
+        List<WeatherRequest> batch = List.of(request, new WeatherRequest("94105", "US"));
+        try (WeatherServiceFixture first = new WeatherServiceFixture(upstream, openDiskCache())) {
+            first.weatherService.getWeatherBatch(batch);
+            assertEquals(2, first.diskCache.size());
+            first.diskCache.close();
+        }
+        int weatherCalls = upstream.weatherCalls();
+
+        try (WeatherServiceFixture restarted = new WeatherServiceFixture(upstream, openDiskCache())) {
+            assertTrue(restarted.weatherService.getWeatherBatch(batch).stream().allMatch(item -> item.getStatus() == 200));
+            assertEquals(weatherCalls, upstream.weatherCalls());
+            restarted.diskCache.close();
+        }
+    }
+
+    private WeatherDiskCache openDiskCache() {
+        WeatherCacheProperties properties = new WeatherCacheProperties();
+        properties.setExpireAfterWriteMinutes(15);
+        properties.setStorePath(dir.resolve("weather.bin").toString());
+        properties.setStoreMaxMegabytes(1);
+        WeatherDiskCache diskCache = new WeatherDiskCache(properties);
+        diskCache.open();
+        return diskCache;
+    }
+}
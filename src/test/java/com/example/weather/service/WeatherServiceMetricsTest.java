@@ -0,0 +1,77 @@
+package com.example.weather.service;
+
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceMetricsTest {
+
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+        upstream.close();
+    }
+
+    @Test
+    void requestsAreTimedAsMissThenHit() {
+        WeatherRequest request = new WeatherRequest("10001", "US");
+
+        fixture.weatherService.getWeather(request);
+        fixture.weatherService.getWeather(request);
+        fixture.weatherService.getWeather(request);
+
+        assertEquals(1, requestCount("miss"));
+        assertEquals(2, requestCount("hit"));
+        assertEquals(0, requestCount("error"));
+        assertEquals(1, upstreamCount("nominatim", "success"));
+        assertEquals(1, upstreamCount("open-meteo", "success"));
+        assertEquals(1, fixture.meterRegistry.get("weather.upstream.queue.wait")
+                .tags("upstream", "open-meteo", "outcome", "dispatched").timer().count());
+        assertEquals(1, fixture.meterRegistry.get("weather.upstream.queue.wait")
+                .tags("upstream", "nominatim", "outcome", "dispatched").timer().count());
+    }
+
+    @Test
+    void failedUpstreamIsTimedAsError() {
+        upstream.failWeatherWith(500);
+
+        assertThrows(RuntimeException.class, () -> fixture.weatherService.getWeather(new WeatherRequest("10001", "US")));
+
+        assertEquals(1, requestCount("error"));
+        assertEquals(1, upstreamCount("open-meteo", "error"));
+    }
+
+    @Test
+    void unknownZipIsTimedAsError() {
+        assertNull(fixture.weatherService.getWeather(new WeatherRequest(FakeUpstreamServer.UNKNOWN_ZIP, "US")));
+
+        assertEquals(1, requestCount("error"));
+    }
+
+    private long requestCount(String cache) {
+        return registry().get("weather.requests").tag("cache", cache).timer().count();
+    }
+
+    private long upstreamCount(String upstreamName, String outcome) {
+        return registry().get("weather.upstream.requests").tags("upstream", upstreamName, "outcome", outcome).timer().count();
+    }
+
+    private MeterRegistry registry() {
+        return fixture.meterRegistry;
+    }
+}
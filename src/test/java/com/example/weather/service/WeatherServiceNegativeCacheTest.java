@@ -0,0 +1,111 @@
+package com.example.weather.service;
+
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.customException.UpstreamUnavailableException;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.BatchWeatherItem;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceNegativeCacheTest {
+
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream);
+        weatherService = fixture.weatherService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+        upstream.close();
+    }
+
+    @Test
+    void unknownZipCodeIsGeocodedOnceThenAnsweredLocally() {
+        WeatherRequest unknown = new WeatherRequest(FakeUpstreamServer.UNKNOWN_ZIP, "US");
+        for (int i = 0; i < 5; i++) {
+            assertNull(weatherService.getWeather(unknown));
+        }
+
+        assertEquals(1, upstream.geoCalls());
+        assertEquals(0, upstream.weatherCalls());
+        assertEquals(NegativeWeatherCache.Reason.NOT_FOUND, fixture.negativeCache.get("00000_US"));
+
+        // batch lookups share the same negative entries
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(unknown, new WeatherRequest("10001", "US")));
+        assertEquals(404, items.get(0).getStatus());
+        assertEquals(200, items.get(1).getStatus());
+        assertEquals(2, upstream.geoCalls());
+    }
+
+    @Test
+    void failedGeocodingIsAnsweredWith503UntilItsEntryExpires() {
+        WeatherRequest request = new WeatherRequest("10001", "US");
+        upstream.failRandomly(1.0);
+        UpstreamUnavailableException failure = assertThrows(UpstreamUnavailableException.class, () -> weatherService.getWeather(request));
+        assertTrue(failure.getRetryAfterSeconds() >= 1);
+        assertEquals(1, upstream.geoCalls());
+
+        // the upstream is back, but the failure is remembered for the short failure TTL
+        upstream.failRandomly(0);
+        assertThrows(UpstreamUnavailableException.class, () -> weatherService.getWeather(request));
+        assertEquals(1, upstream.geoCalls());
+
+        fixture.negativeCache.invalidate("10001_US");
+        assertNotNull(weatherService.getWeather(request));
+        assertEquals(2, upstream.geoCalls());
+    }
+
+    @Test
+    void failedGeocodingIsA503EvenWithoutTheNegativeCache() {
+        ReflectionTestUtils.setField(fixture.negativeCache, "enabled", false);
+        upstream.failRandomly(1.0);
+
+        assertThrows(UpstreamUnavailableException.class, () -> weatherService.getWeather(new WeatherRequest("10001", "US")));
+        assertEquals(503, weatherService.getWeatherBatch(List.of(new WeatherRequest("10002", "US"))).get(0).getStatus());
+        assertNull(fixture.negativeCache.get("10001_US"));
+    }
+
+    @Test
+    void failedGeocodingInABatchIsA503NotANotFound() {
+        upstream.failRandomly(1.0);
+        List<BatchWeatherItem> items = weatherService.getWeatherBatch(List.of(new WeatherRequest("10001", "US")));
+
+        assertEquals(503, items.get(0).getStatus());
+        assertEquals(NegativeWeatherCache.Reason.UPSTREAM_FAILED, fixture.negativeCache.get("10001_US"));
+
+        // and while the entry lasts, a later batch gets the same answer without going upstream
+        upstream.failRandomly(0);
+        items = weatherService.getWeatherBatch(List.of(new WeatherRequest("10001", "US"), new WeatherRequest("10002", "US")));
+        assertEquals(503, items.get(0).getStatus());
+        assertEquals(200, items.get(1).getStatus());
+        assertEquals(2, upstream.geoCalls());
+    }
+
+    @Test
+    void sprayedUnknownZipCodesStayOutOfTheWeatherCache() {
+        weatherService.getWeather(new WeatherRequest("10001", "US"));
+        for (int length = 1; length <= 50; length++) {
+            assertNull(weatherService.getWeather(new WeatherRequest("0".repeat(length), "US")));
+        }
+
+        fixture.weatherCache.synchronous().cleanUp();
+        assertEquals(1, fixture.weatherCache.synchronous().estimatedSize());
+        assertNotNull(fixture.weatherCache.getIfPresent("10001_US"));
+        assertEquals(50, fixture.negativeCache.estimatedSize());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.weather.service;
+
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceRefreshTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final WeatherRequest request = new WeatherRequest("10001", "US");
+
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+    private WeatherService weatherService;
+
+    // The grid cache runs on the real clock, so it is disabled here to make every reload reach the upstream
+    @BeforeEach
+    void setup() throws Exception {
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream, Caffeine.newBuilder()
+                .expireAfterWrite(15, TimeUnit.MINUTES)
+                .refreshAfterWrite(10, TimeUnit.MINUTES)
+                .executor(Runnable::run)
+                .ticker(nanos::get), false);
+        weatherService = fixture.weatherService;
+        ReflectionTestUtils.setField(fixture.upstreamFetcher, "refreshAfterWriteMinutes", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+        upstream.close();
+    }
+
+    @Test
+    void agingEntryIsServedImmediatelyAndReloadedOnceInTheBackground() throws Exception {
+        weatherService.getWeather(request);
+        WeatherResponse original = fixture.weatherCache.synchronous().getIfPresent("10001_US");
+        advanceMinutes(11);
+
+        // served from cache without waiting on upstream, even though a refresh is now due
+        upstream.holdRequests();
+        WeatherResponse stale = weatherService.getWeather(request);
+        WeatherResponse staleAgain = weatherService.getWeather(request);
+        assertSame(original, stale);
+        assertSame(stale, staleAgain);
+        assertTrue(stale.isFromCache());
+
+        upstream.release();
+        awaitWeatherCalls(2);
+        awaitReplacement(original);
+        assertEquals(2, upstream.weatherCalls());
+    }
+
+    @Test
+    void expiredEntryIsLoadedByTheCaller() {
+        weatherService.getWeather(request);
+        advanceMinutes(16);
+
+        WeatherResponse reloaded = weatherService.getWeather(request);
+
+        assertFalse(reloaded.isFromCache());
+        assertEquals(2, upstream.weatherCalls());
+    }
+
+    @Test
+    void failedRefreshKeepsTheCurrentValue() throws Exception {
+        weatherService.getWeather(request);
+        WeatherResponse original = fixture.weatherCache.synchronous().getIfPresent("10001_US");
+        advanceMinutes(11);
+        upstream.failWeatherWith(500);
+
+        assertSame(original, weatherService.getWeather(request));
+        awaitWeatherCalls(2);
+        Thread.sleep(100);
+
+        assertSame(original, fixture.weatherCache.synchronous().getIfPresent("10001_US"));
+    }
+
+    private void advanceMinutes(long minutes) {
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(minutes));
+    }
+
+    private void awaitWeatherCalls(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (upstream.weatherCalls() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, upstream.weatherCalls());
+    }
+
+    private WeatherResponse awaitReplacement(WeatherResponse original) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        WeatherResponse current = fixture.weatherCache.synchronous().getIfPresent("10001_US");
+        while (current == original && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            current = fixture.weatherCache.synchronous().getIfPresent("10001_US");
+        }
+        assertNotSame(original, current);
+        return current;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.weather.service;
+
+import com.example.weather.customException.UpstreamUnavailableException;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.support.WeatherServiceFixture;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeatherServiceSingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private FakeUpstreamServer upstream;
+    private WeatherServiceFixture fixture;
+    private AsyncCache<String, WeatherResponse> cache;
+    private WeatherService weatherService;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setup() throws Exception {
+        upstream = new FakeUpstreamServer();
+        fixture = new WeatherServiceFixture(upstream);
+        cache = fixture.weatherCache;
+        weatherService = fixture.weatherService;
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        fixture.close();
+        upstream.close();
+    }
+
+    @Test
+    void concurrentMissesForSameKeyShareOneUpstreamFetch() throws Exception {
+        List<Future<WeatherResponse>> results = submitConcurrentRequests(new WeatherRequest("10001", "US"));
+
+        WeatherResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        WeatherResponse cached = cache.getIfPresent("10001_US").join();
+        for (Future<WeatherResponse> result : results) {
+            // the caller that loaded gets its fresh copy, everyone who joined gets the cached instance
+            WeatherResponse response = result.get(5, TimeUnit.SECONDS);
+            assertTrue(response == cached || !response.isFromCache());
+            assertEquals(cached.withFromCache(false), response.withFromCache(false));
+        }
+        assertEquals(1, upstream.geoCalls());
+        assertEquals(1, upstream.weatherCalls());
+        assertEquals(21.5, first.getCurrentTemp());
+    }
+
+    @Test
+    void concurrentMissesShareTheSameFailureAndAreNotCached() throws Exception {
+        upstream.failWeatherWith(500);
+
+        List<Future<WeatherResponse>> results = submitConcurrentRequests(new WeatherRequest("10001", "US"));
+
+        Throwable first = failureOf(results.get(0));
+        assertInstanceOf(UpstreamUnavailableException.class, first);
+        assertEquals("Failed to fetch weather data", first.getCause().getMessage());
+        for (Future<WeatherResponse> result : results) {
+            assertSame(first, failureOf(result));
+        }
+        assertEquals(1, upstream.geoCalls());
+        assertEquals(1, upstream.weatherCalls());
+
+        // the failed load is not cached; the negative cache answers for a few seconds, then the next request goes
+        // upstream again (coordinates are already known)
+        assertNull(cache.getIfPresent("10001_US"));
+        assertThrows(UpstreamUnavailableException.class, () -> weatherService.getWeather(new WeatherRequest("10001", "US")));
+        assertEquals(1, upstream.weatherCalls());
+        fixture.negativeCache.invalidate("10001_US");
+        assertThrows(RuntimeException.class, () -> weatherService.getWeather(new WeatherRequest("10001", "US")));
+        assertEquals(1, upstream.geoCalls());
+        assertEquals(2, upstream.weatherCalls());
+    }
+
+    @Test
+    void differentKeysAreFetchedIndependently() {
+        weatherService.getWeather(new WeatherRequest("10001", "US"));
+        weatherService.getWeather(new WeatherRequest("10002", "US"));
+        WeatherResponse hit = weatherService.getWeather(new WeatherRequest("10001", "US"));
+
+        assertTrue(hit.isFromCache());
+        assertEquals(2, upstream.geoCalls());
+        assertEquals(2, upstream.weatherCalls());
+    }
+
+    @Test
+    void hitsGetTheCachedInstanceAsIs() {
+        WeatherRequest request = new WeatherRequest("10001", "US");
+        WeatherResponse loaded = weatherService.getWeather(request);
+        WeatherResponse hit = weatherService.getWeather(request);
+
+        assertFalse(loaded.isFromCache());
+        assertTrue(hit.isFromCache());
+        assertSame(hit, cache.getIfPresent("10001_US").join());
+        assertSame(hit, weatherService.getWeather(request));
+        // only the cached form carries encoded JSON; the loading caller's response is written once, as usual
+        assertNotNull(hit.getEncoded());
+        assertNull(loaded.getEncoded());
+    }
+
+    // Holds the upstream until every caller is either blocked on the shared future or is the single owner
+    private List<Future<WeatherResponse>> submitConcurrentRequests(WeatherRequest request) throws Exception {
+        upstream.holdRequests();
+        List<Thread> threads = new ArrayList<>();
+        List<Future<WeatherResponse>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Callable<WeatherResponse> call = () -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                return weatherService.getWeather(request);
+            };
+            results.add(callers.submit(call));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waitingCallers(threads) < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        upstream.release();
+        return results;
+    }
+
+    private static long waitingCallers(List<Thread> threads) {
+        synchronized (threads) {
+            return threads.stream().filter(t -> t.getState() == Thread.State.WAITING).count();
+        }
+    }
+
+    private static Throwable failureOf(Future<WeatherResponse> result) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+}
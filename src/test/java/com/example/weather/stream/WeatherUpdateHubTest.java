@@ -0,0 +1,200 @@
+package com.example.weather.stream;
+
+import com.example.weather.config.WeatherStreamProperties;
+import com.example.weather.model.request.WeatherRequest;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.service.WeatherService;
+import com.example.weather.support.FakeUpstreamServer;
+import com.example.weather.utils.JWTUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"weather.stream.heartbeat-seconds=1", "cache.weather.store-path=", "cache.geocoding.store-path=",
+                "cache.grid.enabled=false"})
+class WeatherUpdateHubTest {
+
+    private static final FakeUpstreamServer upstream = startUpstream();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WeatherUpdateHub hub;
+
+    @Autowired
+    @Qualifier("weatherCaffeineCache")
+    private AsyncCache<String, WeatherResponse> weatherCache;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void upstreamUrls(DynamicPropertyRegistry registry) {
+        registry.add("weather.api.url", upstream::weatherUrl);
+        registry.add("geo.api.url", upstream::geoUrl);
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.close();
+    }
+
+    @Test
+    void subscribersOfAKeyShareOneTopicAndGetEachReload() throws Exception {
+        BlockingQueue<String> first = open("30301");
+        BlockingQueue<String> second = open("30301");
+
+        assertTrue(awaitData(first).endsWith("\"fromCache\":false}"));
+        assertTrue(awaitData(second).endsWith("\"fromCache\":true}"));
+        assertEquals(1, hub.topics());
+        assertEquals(2, hub.subscribers());
+        int weatherCalls = upstream.weatherCalls();
+
+        // nobody polls the key; the hub's heartbeat read reloads it and the reload is pushed to both streams
+        weatherCache.synchronous().invalidate("30301_us");
+        assertNotNull(awaitData(first));
+        assertNotNull(awaitData(second));
+        assertEquals(weatherCalls + 1, upstream.weatherCalls());
+        assertNotNull(weatherCache.getIfPresent("30301_us"));
+    }
+
+    @Test
+    void aStalledSubscriberIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        WeatherStreamProperties properties = new WeatherStreamProperties();
+        properties.setHeartbeatSeconds(3600);
+        properties.setSendTimeoutMillis(200);
+        ExecutorService refresher = Executors.newSingleThreadExecutor();
+        WeatherUpdateHub standalone = new WeatherUpdateHub(mock(WeatherService.class), refresher, properties);
+        CountDownLatch unblock = new CountDownLatch(1);
+        WeatherRequest request = new WeatherRequest("30301", "us");
+        try {
+            RecordingEmitter stalled = new RecordingEmitter(unblock);
+            RecordingEmitter healthy = new RecordingEmitter(null);
+            standalone.subscribe(request, forecast(20.0), stalled);
+            standalone.subscribe(request, forecast(20.0), healthy);
+            assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+            assertNotNull(stalled.sent.poll(5, TimeUnit.SECONDS));
+
+            // the stalled client's write of this update never returns, but the healthy one gets it straight away
+            standalone.onWeatherUpdated(new WeatherUpdatedEvent("30301_us", forecast(21.0)));
+            assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+
+            Thread.sleep(300);
+            standalone.onWeatherUpdated(new WeatherUpdatedEvent("30301_us", forecast(22.0)));
+            assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, standalone.subscribers());
+        } finally {
+            unblock.countDown();
+            standalone.shutdown();
+            refresher.shutdownNow();
+        }
+    }
+
+    @Test
+    void unknownZipCodeIsNotFoundInsteadOfAnEmptyStream() throws Exception {
+        HttpResponse<String> response = client.send(request(FakeUpstreamServer.UNKNOWN_ZIP), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(404, response.statusCode());
+    }
+
+    private BlockingQueue<String> open(String zipCode) throws Exception {
+        HttpResponse<InputStream> response = client.send(request(zipCode), HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+        BlockingQueue<String> data = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.startsWith("data:")) {
+                        data.add(line.substring("data:".length()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        return data;
+    }
+
+    private HttpRequest request(String zipCode) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/weather/stream?zipCode=" + zipCode + "&countrycodes=us"))
+                .header("Authorization", "Bearer " + JWTUtil.generateToken("kiosk"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private static String awaitData(BlockingQueue<String> data) throws InterruptedException {
+        String event = data.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event, "no event within 10 s");
+        return event;
+    }
+
+    private static WeatherResponse forecast(double currentTemp) {
+        return new WeatherResponse(currentTemp, 25.0, 15.0, "{}", false);
+    }
+
+    // Records what is written to it; with a latch, every write after the first blocks until the latch opens
+    private static final class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<Set<DataWithMediaType>> sent = new LinkedBlockingQueue<>();
+        private final CountDownLatch unblock;
+        private final AtomicInteger writes = new AtomicInteger();
+
+        RecordingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (unblock != null && writes.getAndIncrement() > 0) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(items);
+        }
+    }
+
+    private static FakeUpstreamServer startUpstream() {
+        try {
+            return new FakeUpstreamServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.weather.support;
+
+import com.example.weather.quota.SubjectQuotaTable;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for Nominatim ("/search") and Open-Meteo ("/v1/forecast") so tests never touch the network.
+ */
+public class FakeUpstreamServer implements AutoCloseable {
+
+    // Zip codes made only of zeros are unknown to the fake geocoder
+    public static final String UNKNOWN_ZIP = "00000";
+    public static final String WEATHER_BODY = "{\"current_weather\":{\"temperature\":21.5},"
+            + "\"daily\":{\"time\":[\"2026-10-18\",\"2026-10-19\"],"
+            + "\"temperature_2m_max\":[24.1,23.0],\"temperature_2m_min\":[15.2,14.8]}}";
+
+    private final HttpServer server;
+    // On Java 21 handlers run on virtual threads, so a delayed response doesn't hold a platform thread
+    private final ExecutorService executor = Runtime.version().feature() >= 21
+            ? new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    new VirtualThreadTaskExecutor("fake-upstream-").getVirtualThreadFactory())
+            : Executors.newCachedThreadPool();
+    private final AtomicInteger geoCalls = new AtomicInteger();
+    private final AtomicInteger weatherCalls = new AtomicInteger();
+    private final AtomicInteger rateLimitedCalls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean holdRequests;
+    private volatile int weatherStatus = 200;
+    private volatile long delayMillis;
+    private volatile double failureRate;
+    // null when calls are not rate limited
+    private volatile SubjectQuotaTable rateLimit;
+
+    public FakeUpstreamServer() throws IOException {
+        // deep accept backlog so a burst of thousands of connections isn't refused by the stub itself
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.createContext("/search", exchange -> {
+            geoCalls.incrementAndGet();
+            if (!admit(exchange, "/search")) {
+                return;
+            }
+            respond(exchange, 200, geocode(queryParam(exchange, "postalcode")));
+        });
+        server.createContext("/v1/forecast", exchange -> {
+            weatherCalls.incrementAndGet();
+            if (!admit(exchange, "/v1/forecast")) {
+                return;
+            }
+            int locations = queryParam(exchange, "latitude").split(",").length;
+            respond(exchange, weatherStatus, locations == 1
+                    ? WEATHER_BODY
+                    : "[" + String.join(",", Collections.nCopies(locations, WEATHER_BODY)) + "]");
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String geoUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/search";
+    }
+
+    public String weatherUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1/forecast";
+    }
+
+    // Requests block until release() is called
+    public void holdRequests() {
+        holdRequests = true;
+    }
+
+    public void release() {
+        release.countDown();
+    }
+
+    public void failWeatherWith(int status) {
+        weatherStatus = status;
+    }
+
+    // Every response is held back this long, like a slow upstream
+    public void delayResponses(long millis) {
+        delayMillis = millis;
+    }
+
+    // Each API answers at most this many calls per second and turns the rest away with 429 and Retry-After, the way
+    // Nominatim enforces its usage policy; 0 turns the limit off
+    public void rateLimitPerSecond(int callsPerSecond) {
+        rateLimit = callsPerSecond > 0 ? new SubjectQuotaTable(callsPerSecond, callsPerSecond, Duration.ofMinutes(1), 1) : null;
+    }
+
+    // This fraction of calls, picked at random, fail with 500 after the usual delay
+    public void failRandomly(double rate) {
+        failureRate = rate;
+    }
+
+    public int geoCalls() {
+        return geoCalls.get();
+    }
+
+    public int weatherCalls() {
+        return weatherCalls.get();
+    }
+
+    public int rateLimitedCalls() {
+        return rateLimitedCalls.get();
+    }
+
+    public int failedCalls() {
+        return failedCalls.get();
+    }
+
+    // Holds, rate-limits, delays and randomly fails a call; false when the response has already been sent
+    private boolean admit(HttpExchange exchange, String api) throws IOException {
+        awaitRelease();
+        SubjectQuotaTable limit = rateLimit;
+        long waitNanos = limit == null ? 0 : limit.tryAcquire(api);
+        if (waitNanos > 0) {
+            rateLimitedCalls.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos))));
+            respond(exchange, 429, "{\"error\":\"rate limited\"}");
+            return false;
+        }
+        delay();
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failedCalls.incrementAndGet();
+            respond(exchange, 500, "{\"error\":\"internal error\"}");
+            return false;
+        }
+        return true;
+    }
+
+    private void awaitRelease() {
+        if (!holdRequests) {
+            return;
+        }
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void delay() {
+        if (delayMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Each zip code gets its own coordinates, far enough apart that no two share a grid cell
+    private static String geocode(String query) {
+        String zip = query.split(",")[0];
+        if (zip.isEmpty() || zip.chars().allMatch(c -> c == '0')) {
+            return "[]";
+        }
+        int hash = Math.abs(zip.hashCode() % 1000);
+        return String.format(Locale.ROOT, "[{\"lat\":\"%.4f\",\"lon\":\"%.4f\"}]", 20.025 + hash * 0.05, -119.975 + hash * 0.05);
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                    return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return "";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
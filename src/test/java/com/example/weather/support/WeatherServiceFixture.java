@@ -0,0 +1,156 @@
+package com.example.weather.support;
+
+import com.example.weather.cache.GeocodingCache;
+import com.example.weather.cache.NegativeWeatherCache;
+import com.example.weather.cache.PeerWeatherCache;
+import com.example.weather.cache.WeatherDiskCache;
+import com.example.weather.cache.WeatherGridCache;
+import com.example.weather.cache.WeatherJsonEncoder;
+import com.example.weather.clients.NominatimGeocodingClient;
+import com.example.weather.clients.OfflineGeocodingClient;
+import com.example.weather.clients.OpenMeteoWeatherClient;
+import com.example.weather.clients.RoutingWeatherClient;
+import com.example.weather.clients.UpstreamScheduler;
+import com.example.weather.config.CacheConfig;
+import com.example.weather.config.GeocodingCacheProperties;
+import com.example.weather.config.NegativeCacheProperties;
+import com.example.weather.config.OfflineGeocodingProperties;
+import com.example.weather.config.PeerCacheProperties;
+import com.example.weather.config.UpstreamHttpConfig;
+import com.example.weather.config.UpstreamHttpProperties;
+import com.example.weather.config.UpstreamPacingProperties;
+import com.example.weather.config.WeatherCacheProperties;
+import com.example.weather.config.WeatherGridProperties;
+import com.example.weather.config.WeatherRoutingProperties;
+import com.example.weather.metrics.WeatherMetrics;
+import com.example.weather.model.response.WeatherResponse;
+import com.example.weather.service.UpstreamWeatherFetcher;
+import com.example.weather.service.WeatherLoader;
+import com.example.weather.service.WeatherService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link WeatherService} wired by hand against a {@link FakeUpstreamServer}, with in-memory caches unless a disk cache is passed in.
+ */
+public class WeatherServiceFixture implements AutoCloseable {
+
+    public final AsyncLoadingCache<String, WeatherResponse> weatherCache;
+    public final ExecutorService upstreamExecutor = Executors.newFixedThreadPool(4);
+    public final WeatherService weatherService;
+    public final UpstreamWeatherFetcher upstreamFetcher;
+    public final WeatherDiskCache diskCache;
+    // no dataset unless a test sets one and calls loadDataset(), so every lookup falls back to Nominatim
+    public final OfflineGeocodingProperties offlineGeocodingProperties = new OfflineGeocodingProperties();
+    public final OfflineGeocodingClient offlineGeocoder;
+    public final NominatimGeocodingClient nominatim;
+    public final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    public final UpstreamScheduler upstreamScheduler;
+    public final NegativeWeatherCache negativeCache;
+    // what the service published, e.g. WeatherUpdatedEvent, in order
+    public final List<Object> publishedEvents = new CopyOnWriteArrayList<>();
+
+    public WeatherServiceFixture(FakeUpstreamServer upstream) {
+        this(upstream, Caffeine.newBuilder().expireAfter(CacheConfig.expireAfterWrite(Duration.ofMinutes(15))).recordStats(), true);
+    }
+
+    public WeatherServiceFixture(FakeUpstreamServer upstream, WeatherDiskCache diskCache) {
+        this(upstream, Caffeine.newBuilder().expireAfter(CacheConfig.expireAfterWrite(Duration.ofMinutes(15))).recordStats(), true, diskCache);
+    }
+
+    public WeatherServiceFixture(FakeUpstreamServer upstream, Caffeine<Object, Object> weatherCacheBuilder, boolean gridEnabled) {
+        this(upstream, weatherCacheBuilder, gridEnabled, new WeatherDiskCache(new WeatherCacheProperties()));
+    }
+
+    // The cache's loader is the service's WeatherLoader, as the Spring wiring in CacheConfig does
+    public WeatherServiceFixture(FakeUpstreamServer upstream, Caffeine<Object, Object> weatherCacheBuilder, boolean gridEnabled,
+                                 WeatherDiskCache diskCache) {
+        this.diskCache = diskCache;
+        AtomicReference<WeatherLoader> loader = new AtomicReference<>();
+        weatherCache = weatherCacheBuilder.buildAsync(new AsyncCacheLoader<String, WeatherResponse>() {
+            @Override
+            public CompletableFuture<? extends WeatherResponse> asyncLoad(String key, Executor executor) {
+                return loader.get().asyncLoad(key, executor);
+            }
+
+            @Override
+            public CompletableFuture<? extends WeatherResponse> asyncReload(String key, WeatherResponse oldValue, Executor executor) {
+                return loader.get().asyncReload(key, oldValue, executor);
+            }
+        });
+
+        CacheConfig cacheConfig = new CacheConfig();
+
+        GeocodingCacheProperties geocodingProperties = new GeocodingCacheProperties();
+        geocodingProperties.setExpireAfterWriteDays(30);
+        geocodingProperties.setMaximumSize(1000);
+        GeocodingCache geocodingCache = new GeocodingCache(
+                cacheConfig.geocodingCaffeineCache(geocodingProperties), geocodingProperties);
+
+        WeatherGridProperties gridProperties = new WeatherGridProperties();
+        gridProperties.setEnabled(gridEnabled);
+        gridProperties.setStepDegrees(0.05);
+        gridProperties.setExpireAfterWriteMinutes(15);
+        gridProperties.setMaximumSize(1000);
+        WeatherGridCache gridCache = new WeatherGridCache(
+                cacheConfig.weatherGridCaffeineCache(gridProperties), gridProperties);
+
+        NegativeCacheProperties negativeProperties = new NegativeCacheProperties();
+        negativeCache = new NegativeWeatherCache(cacheConfig.negativeWeatherCaffeineCache(negativeProperties), negativeProperties);
+
+        UpstreamHttpConfig httpConfig = new UpstreamHttpConfig();
+        UpstreamHttpProperties httpProperties = new UpstreamHttpProperties();
+        RestTemplate restTemplate = httpConfig.upstreamRestTemplate(httpConfig.upstreamHttpClient(httpProperties, new MockEnvironment()),
+                httpConfig.perHostRequestLimiter(httpProperties), httpProperties);
+
+        WeatherMetrics metrics = new WeatherMetrics(meterRegistry);
+        upstreamScheduler = new UpstreamScheduler(unpacedUpstreams(), metrics);
+
+        RoutingWeatherClient weatherClient = new RoutingWeatherClient(new WeatherRoutingProperties(), restTemplate, upstreamScheduler,
+                metrics, upstream.weatherUrl());
+        OpenMeteoWeatherClient openMeteo = new OpenMeteoWeatherClient(restTemplate, upstreamScheduler, gridCache, metrics);
+        ReflectionTestUtils.setField(openMeteo, "weatherApiUrl", upstream.weatherUrl());
+        nominatim = new NominatimGeocodingClient(restTemplate, upstreamScheduler, geocodingCache, metrics);
+        ReflectionTestUtils.setField(nominatim, "geoApiUrl", upstream.geoUrl());
+        offlineGeocoder = new OfflineGeocodingClient(nominatim, offlineGeocodingProperties);
+        upstreamFetcher = new UpstreamWeatherFetcher(offlineGeocoder, gridCache, weatherClient, openMeteo, upstreamExecutor);
+        PeerWeatherCache peerCache = new PeerWeatherCache(new PeerCacheProperties(), new WeatherCacheProperties(), metrics);
+        loader.set(new WeatherLoader(negativeCache, diskCache, peerCache, upstreamFetcher,
+                new WeatherJsonEncoder(new ObjectMapper()), upstreamExecutor, publishedEvents::add));
+        weatherService = new WeatherService(weatherCache, loader.get(), diskCache, peerCache, metrics);
+    }
+
+    // Fast enough that the scheduler never holds a test back; UpstreamSchedulerTest covers pacing itself
+    public static UpstreamPacingProperties unpacedUpstreams() {
+        UpstreamPacingProperties properties = new UpstreamPacingProperties();
+        UpstreamPacingProperties.Lane lane = new UpstreamPacingProperties.Lane();
+        lane.setRatePerSecond(100_000);
+        lane.setMaxQueued(10_000);
+        lane.setInitialConcurrency(64);
+        lane.setMaxConcurrency(64);
+        properties.getLanes().put(WeatherMetrics.NOMINATIM, lane);
+        properties.getLanes().put(WeatherMetrics.OPEN_METEO, lane);
+        return properties;
+    }
+
+    @Override
+    public void close() {
+        upstreamExecutor.shutdownNow();
+        upstreamScheduler.shutdown();
+    }
+}
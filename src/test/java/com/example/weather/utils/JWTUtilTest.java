@@ -0,0 +1,39 @@
+package com.example.weather.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JWTUtilTest {
+
+    @Test
+    void repeatedValidationIsServedFromTheVerifiedCache() {
+        String token = JWTUtil.generateToken("cache-user");
+        long before = JWTUtil.verifiedTokenCount();
+
+        assertEquals("cache-user", JWTUtil.validateToken(token));
+        assertEquals(before + 1, JWTUtil.verifiedTokenCount());
+        assertEquals("cache-user", JWTUtil.validateToken(token));
+        assertEquals(before + 1, JWTUtil.verifiedTokenCount());
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = JWTUtil.generateToken("tamper-user");
+        assertEquals("tamper-user", JWTUtil.validateToken(token));
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(JWTUtil.validateToken(tampered));
+    }
+
+    @Test
+    void expiredOrMalformedTokensAreRejectedAndNotCached() {
+        long before = JWTUtil.verifiedTokenCount();
+
+        assertNull(JWTUtil.validateToken(JWTUtil.generateToken("expired-user", -60_000)));
+        assertNull(JWTUtil.validateToken("not-a-jwt"));
+        assertNull(JWTUtil.validateToken(""));
+        assertEquals(before, JWTUtil.verifiedTokenCount());
+    }
+}